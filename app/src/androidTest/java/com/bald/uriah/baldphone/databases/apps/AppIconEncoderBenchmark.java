@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.Log;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures encoding, decoding and the size of app icons with every {@link AppIconEncoder.Format},
+ * the results are logged under {@link #TAG}.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class AppIconEncoderBenchmark {
+    private static final String TAG = AppIconEncoderBenchmark.class.getSimpleName();
+    private static final int ICON_SIZE = 192;
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 100;
+
+    private Bitmap icon;
+
+    @Before
+    public void setUp() {
+        icon = Bitmap.createBitmap(ICON_SIZE, ICON_SIZE, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(icon);
+        // a round icon with a gradient and transparent corners, like most launcher icons.
+        // not anti aliased, so no pixel is translucent and premultiplying can't round the comparison of pixels
+        final Paint paint = new Paint();
+        for (int i = 0; i < ICON_SIZE / 2; i++) {
+            paint.setColor(Color.argb(255, i * 2, 255 - i * 2, (i * 7) % 256));
+            canvas.drawCircle(ICON_SIZE / 2f, ICON_SIZE / 2f, ICON_SIZE / 2f - i, paint);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        icon.recycle();
+    }
+
+    @Test
+    public void benchmarkPng() {
+        benchmark(AppIconEncoder.FORMAT_PNG);
+    }
+
+    @Test
+    public void benchmarkWebp() {
+        benchmark(AppIconEncoder.FORMAT_WEBP);
+    }
+
+    @Test
+    public void defaultFormatIsLossless() {
+        final byte[] bytes = new AppIconEncoder(ICON_SIZE, AppIconEncoder.FORMAT).encode(icon);
+        final Bitmap decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        assertEquals(ICON_SIZE, decoded.getWidth());
+        assertEquals(ICON_SIZE, decoded.getHeight());
+        for (int x = 0; x < ICON_SIZE; x++)
+            for (int y = 0; y < ICON_SIZE; y++)
+                assertEquals(icon.getPixel(x, y), decoded.getPixel(x, y));
+        decoded.recycle();
+    }
+
+    @Test
+    public void iconsAreDownscaledToTheCellSize() {
+        final byte[] bytes = new AppIconEncoder(ICON_SIZE / 2, AppIconEncoder.FORMAT).encode(icon);
+        final Bitmap decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        assertEquals(ICON_SIZE / 2, decoded.getWidth());
+        assertEquals(ICON_SIZE / 2, decoded.getHeight());
+        decoded.recycle();
+    }
+
+    private void benchmark(@AppIconEncoder.Format int format) {
+        final AppIconEncoder appIconEncoder = new AppIconEncoder(ICON_SIZE, format);
+        byte[] bytes = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            bytes = appIconEncoder.encode(icon);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            bytes = appIconEncoder.encode(icon);
+        final long encodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length).recycle();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length).recycle();
+        final long decodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        assertTrue(bytes.length > 0);
+        Log.i(TAG, String.format("%s: encode %dus, decode %dus, %d bytes",
+                format == AppIconEncoder.FORMAT_WEBP ? "WEBP" : "PNG", encodeNanos / 1000, decodeNanos / 1000, bytes.length));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.util.Log;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Types a filter letter by letter into a {@link ContactsDirectory} of 20,000 contacts from a fake contacts provider,
+ * filtering the same way {@link com.bald.uriah.baldphone.activities.contacts.BaseContactsActivity} does -
+ * every letter cancels the previous filter, and only a filter which was not cancelled delivers its cursor.
+ * the results are logged under {@link #TAG}.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ContactsDirectoryFilterTest {
+    private static final String TAG = ContactsDirectoryFilterTest.class.getSimpleName();
+    private static final int CONTACTS = 20000;
+    private static final String FILTER = "contact 1234";
+    /**
+     * faster than the debounce of the activity, so every letter starts a filter while the previous ones still run
+     */
+    private static final long KEYSTROKE_INTERVAL_MS = 20;
+    private static final long MAX_LAST_FILTER_MS = 1000;
+
+    private ContactsDirectory contactsDirectory;
+
+    @Before
+    public void setUp() {
+        final MockContentResolver contentResolver = new MockContentResolver();
+        contentResolver.addProvider(ContactsContract.AUTHORITY, new FakeContactsProvider());
+        contactsDirectory = new ContactsDirectory(new ContextWrapper(getInstrumentation().getTargetContext()) {
+            @Override
+            public ContentResolver getContentResolver() {
+                return contentResolver;
+            }
+
+            @Override
+            public Context getApplicationContext() {
+                return this;
+            }
+        });
+        final long start = SystemClock.elapsedRealtime();
+        try (Cursor cursor = contactsDirectory.queryByName(null, false)) {
+            assertEquals(CONTACTS, cursor.getCount());
+        }
+        Log.i(TAG, String.format(Locale.US, "loaded %d contacts: %dms", CONTACTS, SystemClock.elapsedRealtime() - start));
+    }
+
+    @Test
+    public void fastTypingDeliversOnlyTheLastFilter() throws InterruptedException {
+        final Filterer filterer = new Filterer();
+        long lastKeystroke = 0;
+        for (int i = 1; i <= FILTER.length(); i++) {
+            lastKeystroke = SystemClock.elapsedRealtime();
+            filterer.filter(FILTER.substring(0, i));
+            SystemClock.sleep(KEYSTROKE_INTERVAL_MS);
+        }
+        assertTrue(filterer.finished.await(10, TimeUnit.SECONDS));
+        final long lastFilterMs = filterer.deliveredAt - lastKeystroke;
+
+        // letters which were not superseded while scanning may deliver too, but the last one is always the last filter
+        assertEquals(FILTER, filterer.deliveredFilter);
+        // "Contact 1234" and "Contact 12340" to "Contact 12349"
+        assertEquals(11, filterer.deliveredCount);
+        assertEquals(FILTER.length(), filterer.delivered + filterer.cancelled + filterer.superseded);
+        Log.i(TAG, String.format(Locale.US, "%d letters: %d filters cancelled while scanning, %d finished but were superseded, last filter after %dms",
+                FILTER.length(), filterer.cancelled, filterer.superseded, lastFilterMs));
+        assertTrue("the last filter took " + lastFilterMs + "ms", lastFilterMs < MAX_LAST_FILTER_MS);
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void cancelledFilterStopsScanning() {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+        contactsDirectory.queryByName("contact", false, cancellationSignal).close();
+    }
+
+    /**
+     * the filtering of {@link com.bald.uriah.baldphone.activities.contacts.BaseContactsActivity}, without the debounce
+     */
+    private class Filterer {
+        final CountDownLatch finished = new CountDownLatch(FILTER.length());
+        private CancellationSignal cancellationSignal;
+        int delivered, cancelled, superseded, deliveredCount;
+        String deliveredFilter;
+        long deliveredAt;
+
+        synchronized void filter(String filter) {
+            if (this.cancellationSignal != null)
+                this.cancellationSignal.cancel();
+            final CancellationSignal cancellationSignal = new CancellationSignal();
+            this.cancellationSignal = cancellationSignal;
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+                try {
+                    final Cursor cursor = contactsDirectory.queryByName(filter, false, cancellationSignal);
+                    deliver(filter, cursor, cancellationSignal);
+                } catch (OperationCanceledException e) {
+                    synchronized (this) {
+                        cancelled++;
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+
+        private synchronized void deliver(String filter, Cursor cursor, CancellationSignal cancellationSignal) {
+            if (cancellationSignal.isCanceled()) {
+                superseded++;
+            } else {
+                delivered++;
+                deliveredFilter = filter;
+                deliveredCount = cursor.getCount();
+                deliveredAt = SystemClock.elapsedRealtime();
+            }
+            cursor.close();
+        }
+    }
+
+    /**
+     * contacts named "Contact 0" to "Contact 19999", each with one number, and no deleted contacts.
+     * the last updated timestamp of a contact is its id, so a sync after the first load finds nothing new.
+     */
+    private static class FakeContactsProvider extends MockContentProvider {
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            final MatrixCursor cursor = new MatrixCursor(projection);
+            if (uri.equals(ContactsContract.Contacts.CONTENT_URI)) {
+                final int since = selection != null && selection.startsWith(ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP)
+                        ? (int) Math.min(CONTACTS, Long.parseLong(selectionArgs[0])) : 0;
+                for (int i = since; i < CONTACTS; i++)
+                    cursor.newRow()
+                            .add(ContactsContract.Contacts._ID, i)
+                            .add(ContactsContract.Contacts.LOOKUP_KEY, "lookup" + i)
+                            .add(ContactsContract.Contacts.DISPLAY_NAME, "Contact " + i)
+                            .add(ContactsContract.Contacts.STARRED, i % 100 == 0 ? 1 : 0)
+                            .add(ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP, i);
+            } else if (uri.equals(ContactsContract.CommonDataKinds.Phone.CONTENT_URI)) {
+                for (int i = 0; i < CONTACTS; i++)
+                    cursor.newRow()
+                            .add(ContactsContract.CommonDataKinds.Phone.CONTACT_ID, i)
+                            .add(ContactsContract.CommonDataKinds.Phone.NUMBER, String.format(Locale.US, "054%07d", i));
+            }
+            return cursor;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+import android.util.Pair;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link VCardParser} and {@link VCardWriter}. runs on a device because {@link VCardEntry} keeps {@link Pair}s.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class VCardTest {
+    private static final String CRLF = "\r\n";
+
+    @Test
+    public void parsesVCard3() throws IOException {
+        final VCardParser parser = new VCardParser(new StringReader(
+                "BEGIN:VCARD\r\n" +
+                        "VERSION:3.0\r\n" +
+                        "FN:Moshe Cohen\r\n" +
+                        "N:Cohen;Moshe;;;\r\n" +
+                        "item1.TEL;TYPE=CELL,VOICE:+972 54-123-4567\r\n" +
+                        "TEL;HOME:03-1234567\r\n" +
+                        "EMAIL;TYPE=\"WORK\":moshe@example.com\r\n" +
+                        "ADR;TYPE=HOME:;;Herzl 1\\, apt. 2;Tel Aviv;;;Israel\r\n" +
+                        "NOTE:not used\r\n" +
+                        "END:VCARD\r\n"));
+        final VCardEntry entry = parser.next();
+        assertEquals("Moshe Cohen", entry.getName());
+        assertEquals("Cohen", entry.familyName);
+        assertEquals("Moshe", entry.givenName);
+        assertNull(entry.middleName);
+        assertEquals(2, entry.phones.size());
+        assertEquals(Phone.TYPE_MOBILE, (int) entry.phones.get(0).first);
+        assertEquals("+972 54-123-4567", entry.phones.get(0).second);
+        assertEquals(Phone.TYPE_HOME, (int) entry.phones.get(1).first);
+        assertEquals(1, entry.mails.size());
+        assertEquals(Email.TYPE_WORK, (int) entry.mails.get(0).first);
+        assertEquals(1, entry.addresses.size());
+        assertEquals(StructuredPostal.TYPE_HOME, (int) entry.addresses.get(0).first);
+        assertArrayEquals(new String[]{null, null, "Herzl 1, apt. 2", "Tel Aviv", null, null, "Israel"}, entry.addresses.get(0).second);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void parsesVCard4() throws IOException {
+        final VCardParser parser = new VCardParser(new StringReader(
+                "BEGIN:VCARD\n" +
+                        "VERSION:4.0\n" +
+                        "N:Levi;David;;;\n" +
+                        "TEL;VALUE=uri;TYPE=\"work,voice\":tel:+1-555-555-5555\n" +
+                        "END:VCARD\n" +
+                        "BEGIN:VCARD\n" +
+                        "VERSION:4.0\n" +
+                        "FN:Second\n" +
+                        "END:VCARD\n"));
+        final VCardEntry entry = parser.next();
+        // no FN, the name is built from N
+        assertEquals("David Levi", entry.getName());
+        assertEquals(Phone.TYPE_WORK, (int) entry.phones.get(0).first);
+        assertEquals("+1-555-555-5555", entry.phones.get(0).second);
+        assertEquals("Second", parser.next().getName());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void unfoldsLines() throws IOException {
+        final VCardParser parser = new VCardParser(new StringReader(
+                "BEGIN:VCARD\r\n" +
+                        "FN:Avraham\r\n" +
+                        "  Avinu\r\n" +
+                        "NOTE:a note\r\n" +
+                        "\tcontinued\r\n" +
+                        "END:VCARD\r\n"));
+        assertEquals("Avraham Avinu", parser.next().getName());
+    }
+
+    @Test
+    public void writtenVCardsAreParsedBack() throws IOException {
+        final VCardEntry entry = new VCardEntry();
+        entry.formattedName = "שמואל בן-דוד; the second";
+        entry.givenName = "שמואל";
+        entry.familyName = "בן-דוד";
+        entry.phones.add(new Pair<>(Phone.TYPE_MOBILE, "054-1234567"));
+        entry.phones.add(new Pair<>(Phone.TYPE_FAX_WORK, "03-7654321"));
+        entry.mails.add(new Pair<>(Email.TYPE_HOME, "shmuel@example.com"));
+        entry.addresses.add(new Pair<>(StructuredPostal.TYPE_WORK,
+                new String[]{null, null, "רחוב הרצל 1\nקומה 2", "תל אביב", null, "6100000", "ישראל"}));
+
+        final VCardEntry parsed = parse(write(entry));
+        assertEquals(entry.formattedName, parsed.formattedName);
+        assertEquals(entry.givenName, parsed.givenName);
+        assertEquals(entry.familyName, parsed.familyName);
+        assertEquals(entry.phones, parsed.phones);
+        assertEquals(entry.mails, parsed.mails);
+        assertEquals(1, parsed.addresses.size());
+        assertEquals(entry.addresses.get(0).first, parsed.addresses.get(0).first);
+        assertArrayEquals(entry.addresses.get(0).second, parsed.addresses.get(0).second);
+    }
+
+    @Test
+    public void linesAreFoldedByTheirUtf8Length() throws IOException {
+        final StringBuilder name = new StringBuilder();
+        // hebrew is 2 octets a char, and the emoji are surrogate pairs of 4 octets
+        for (int i = 0; i < 40; i++)
+            name.append("אבג abc 😀");
+        final VCardEntry entry = new VCardEntry();
+        entry.formattedName = name.toString();
+        final String vCard = write(entry);
+
+        int foldedLines = 0;
+        for (final String line : vCard.split(CRLF)) {
+            assertTrue(line, line.getBytes(StandardCharsets.UTF_8).length <= 75);
+            // no surrogate pair is split between lines
+            assertTrue(line, !Character.isHighSurrogate(line.charAt(line.length() - 1)));
+            if (line.startsWith(" "))
+                foldedLines++;
+        }
+        assertTrue(foldedLines > 0);
+        assertEquals(entry.formattedName, parse(vCard).formattedName);
+    }
+
+    private static String write(VCardEntry entry) throws IOException {
+        final StringWriter stringWriter = new StringWriter();
+        final VCardWriter vCardWriter = new VCardWriter(stringWriter);
+        vCardWriter.write(entry);
+        vCardWriter.flush();
+        return stringWriter.toString();
+    }
+
+    private static VCardEntry parse(String vCard) throws IOException {
+        final VCardParser parser = new VCardParser(new StringReader(vCard));
+        final VCardEntry entry = parser.next();
+        assertNull(parser.next());
+        return entry;
+    }
+}
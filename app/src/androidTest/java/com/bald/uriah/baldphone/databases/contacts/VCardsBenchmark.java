@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures {@link VCards} importing and exporting thousands of contacts against a fake contacts provider,
+ * so only the parsing, the writing and the batching are measured. the results are logged under {@link #TAG}.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class VCardsBenchmark {
+    private static final String TAG = VCardsBenchmark.class.getSimpleName();
+    private static final int CONTACTS = 5000;
+    private static final int MAX_BATCH_SIZE = 250;
+
+    private FakeContactsProvider fakeContactsProvider;
+    private MockContentResolver contentResolver;
+
+    @Before
+    public void setUp() {
+        fakeContactsProvider = new FakeContactsProvider();
+        contentResolver = new MockContentResolver();
+        contentResolver.addProvider(ContactsContract.AUTHORITY, fakeContactsProvider);
+    }
+
+    @Test
+    public void benchmarkImport() throws Exception {
+        final StringWriter stringWriter = new StringWriter();
+        final VCardWriter vCardWriter = new VCardWriter(stringWriter);
+        for (int i = 0; i < CONTACTS; i++)
+            vCardWriter.write(entry(i));
+        vCardWriter.flush();
+        final String vCards = stringWriter.toString();
+
+        final long start = System.nanoTime();
+        final int imported = VCards.importVCards(contentResolver, new StringReader(vCards), null);
+        final long nanos = System.nanoTime() - start;
+
+        assertEquals(CONTACTS, imported);
+        // a raw contact, a name, a phone and a mail for every contact
+        assertEquals(CONTACTS * 4, fakeContactsProvider.operations);
+        assertTrue(fakeContactsProvider.maxBatchSize <= MAX_BATCH_SIZE);
+        Log.i(TAG, String.format("import %d contacts: %dms, %d contacts per second, %d batches",
+                CONTACTS, nanos / 1000000, CONTACTS * 1000000000L / nanos, fakeContactsProvider.batches));
+    }
+
+    @Test
+    public void benchmarkExport() throws Exception {
+        fakeContactsProvider.contacts = CONTACTS;
+        final StringWriter stringWriter = new StringWriter();
+
+        final long start = System.nanoTime();
+        final int exported = VCards.exportVCards(contentResolver, stringWriter);
+        final long nanos = System.nanoTime() - start;
+
+        assertEquals(CONTACTS, exported);
+        final VCardParser parser = new VCardParser(new StringReader(stringWriter.toString()));
+        int parsed = 0;
+        VCardEntry entry;
+        while ((entry = parser.next()) != null) {
+            assertEquals(entry(parsed).formattedName, entry.formattedName);
+            assertEquals(1, entry.phones.size());
+            assertEquals(1, entry.mails.size());
+            parsed++;
+        }
+        assertEquals(CONTACTS, parsed);
+        Log.i(TAG, String.format("export %d contacts: %dms, %d contacts per second, %d KB",
+                CONTACTS, nanos / 1000000, CONTACTS * 1000000000L / nanos, stringWriter.getBuffer().length() / 1024));
+    }
+
+    @Test
+    public void contactsWhichDoNotFitInABatchAreSkipped() throws Exception {
+        final VCardEntry entry = entry(0);
+        for (int i = 0; i < MAX_BATCH_SIZE; i++)
+            entry.phones.add(new Pair<>(Phone.TYPE_OTHER, "050" + i));
+        final StringWriter stringWriter = new StringWriter();
+        final VCardWriter vCardWriter = new VCardWriter(stringWriter);
+        vCardWriter.write(entry(1));
+        vCardWriter.write(entry);
+        vCardWriter.write(entry(2));
+        vCardWriter.flush();
+
+        assertEquals(2, VCards.importVCards(contentResolver, new StringReader(stringWriter.toString()), null));
+        assertEquals(8, fakeContactsProvider.operations);
+    }
+
+    private static VCardEntry entry(int i) {
+        final VCardEntry entry = new VCardEntry();
+        entry.givenName = "שם" + i;
+        entry.familyName = "Family " + i;
+        entry.formattedName = entry.givenName + " " + entry.familyName;
+        entry.phones.add(new Pair<>(Phone.TYPE_MOBILE, String.format("054%07d", i)));
+        entry.mails.add(new Pair<>(Email.TYPE_HOME, "contact" + i + "@example.com"));
+        return entry;
+    }
+
+    /**
+     * counts the batches applied to it, and returns {@link #contacts} generated contacts from every query of the data table
+     */
+    private static class FakeContactsProvider extends MockContentProvider {
+        int batches, operations, maxBatchSize;
+        int contacts;
+
+        @Override
+        public ContentProviderResult[] applyBatch(String authority, ArrayList<ContentProviderOperation> operations) {
+            return applyBatch(operations);
+        }
+
+        @Override
+        public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) {
+            batches++;
+            this.operations += operations.size();
+            maxBatchSize = Math.max(maxBatchSize, operations.size());
+            return new ContentProviderResult[operations.size()];
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            final MatrixCursor cursor = new MatrixCursor(projection, contacts * 3);
+            for (int i = 0; i < contacts; i++) {
+                final VCardEntry entry = entry(i);
+                addRow(cursor, i, StructuredName.CONTENT_ITEM_TYPE, entry.formattedName, entry.givenName, entry.familyName);
+                addRow(cursor, i, Phone.CONTENT_ITEM_TYPE, entry.phones.get(0).second, entry.phones.get(0).first);
+                addRow(cursor, i, Email.CONTENT_ITEM_TYPE, entry.mails.get(0).second, entry.mails.get(0).first);
+            }
+            return cursor;
+        }
+
+        /**
+         * @param data the data columns, from {@link ContactsContract.Data#DATA1}
+         */
+        private static void addRow(MatrixCursor cursor, long contactId, String mimetype, Object... data) {
+            final MatrixCursor.RowBuilder rowBuilder = cursor.newRow()
+                    .add(ContactsContract.Data.CONTACT_ID, contactId)
+                    .add(ContactsContract.Data.MIMETYPE, mimetype);
+            for (int i = 0; i < data.length; i++)
+                rowBuilder.add("data" + (i + 1), data[i]);
+        }
+    }
+}
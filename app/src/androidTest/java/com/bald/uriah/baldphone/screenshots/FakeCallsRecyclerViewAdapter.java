@@ -33,7 +33,6 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.ColorRes;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -45,9 +44,10 @@ import com.bumptech.glide.Glide;
 
 import org.joda.time.DateTime;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<FakeCallsRecyclerViewAdapter.ViewHolder> {
+public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<RecyclerView.ViewHolder> {
     private static final String TAG = FakeCallsRecyclerViewAdapter.class.getSimpleName();
 
     public static final int INCOMING_TYPE = 1;
@@ -59,12 +59,20 @@ public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAda
     public static final int BLOCKED_TYPE = 6;
     public static final int ANSWERED_EXTERNALLY_TYPE = 7;
 
+    private static final int CALL_VIEW_TYPE = 0;
+    private static final int DAY_VIEW_TYPE = 1;
+
     @ColorInt
     private final int textColorOnRegular;
     private final List<FakeCall> callList;
     private final BaldActivity activity;
     private final LayoutInflater inflater;
     private final Drawable letterContactBackground;
+    /**
+     * same as in CallsRecyclerViewAdapter - the index of the call of every row, or -1 - the index of its day for headers
+     */
+    private final List<Integer> rows = new ArrayList<>();
+    private final List<String> days = new ArrayList<>();
 
     public FakeCallsRecyclerViewAdapter(List<FakeCall> callList, BaldActivity activity) {
         this.callList = callList;
@@ -78,23 +86,51 @@ public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAda
         theme.resolveAttribute(R.attr.bald_background, typedValue, true);
         this.letterContactBackground = new ColorDrawable(typedValue.data);
 
+        for (int i = 0; i < callList.size(); i++) {
+            final long dateTime = callList.get(i).dateTime;
+            if (i == 0 || new DateTime(callList.get(i - 1).dateTime).withTimeAtStartOfDay().getMillis() != new DateTime(dateTime).withTimeAtStartOfDay().getMillis()) {
+                days.add(S.stringTimeFromLong(activity, dateTime, false));
+                rows.add(-days.size());
+            }
+            rows.add(i);
+        }
     }
 
     @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == DAY_VIEW_TYPE)
+            return new DayViewHolder(inflater.inflate(R.layout.calls_day_item, parent, false));
         return new ViewHolder(inflater.inflate(R.layout.calls_item, parent, false));
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         super.onBindViewHolder(holder, position);
-        holder.update(position);
+        final int row = rows.get(position);
+        if (row < 0)
+            ((DayViewHolder) holder).day.setText(days.get(-1 - row));
+        else
+            ((ViewHolder) holder).update(row);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows.get(position) < 0 ? DAY_VIEW_TYPE : CALL_VIEW_TYPE;
     }
 
     @Override
     public int getItemCount() {
-        return callList.size();
+        return rows.size();
+    }
+
+    static class DayViewHolder extends RecyclerView.ViewHolder {
+        final TextView day;
+
+        DayViewHolder(View itemView) {
+            super(itemView);
+            day = itemView.findViewById(R.id.day);
+        }
     }
 
     static class FakeCall {
@@ -112,15 +148,10 @@ public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAda
     }
 
     class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
-        private static final int expandedSize = 150;
-        private static final int notExpandedSize = 100;
-
         final ImageView profile_pic, iv_type;
-        final TextView tv_type, contact_name, tv_time, image_letter, day;
-        final View line;
+        final TextView tv_type, contact_name, tv_time, image_letter;
         final FrameLayout fl_contact_only;
         final LinearLayout container, ll_contact_only;
-        private boolean expanded;
 
         public ViewHolder(View itemView) {
             super(itemView);
@@ -132,8 +163,6 @@ public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAda
             contact_name = container.findViewById(R.id.contact_name);
             tv_time = container.findViewById(R.id.tv_time);
             image_letter = container.findViewById(R.id.image_letter);
-            line = container.findViewById(R.id.line);
-            day = container.findViewById(R.id.day);
             fl_contact_only = container.findViewById(R.id.fl_contact_only);
             ll_contact_only.setOnClickListener(this);
         }
@@ -167,49 +196,10 @@ public class FakeCallsRecyclerViewAdapter extends ModularRecyclerView.ModularAda
             }
 
             setType(fakeCall.callType);
-            setDay(
-                    (index == 0 ||
-                            new DateTime(callList.get(index - 1).dateTime).getDayOfYear() !=
-                                    new DateTime(fakeCall.dateTime).getDayOfYear()) ?
-                            S.stringTimeFromLong(activity, fakeCall.dateTime, false) :
-                            null
-            );
-
             final DateTime dateTime = new DateTime(fakeCall.dateTime);
             tv_time.setText(S.numberToAlarmString(dateTime.getHourOfDay(), dateTime.getMinuteOfHour()));
         }
 
-        public void setDay(final @Nullable String day) {
-            if (day == null && expanded) {
-                RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) this.container.getLayoutParams();
-                layoutParams.height =
-                        (int) TypedValue.applyDimension(
-                                TypedValue.COMPLEX_UNIT_DIP,
-                                notExpandedSize,
-                                activity.getResources().getDisplayMetrics()
-                        );
-                this.container.setLayoutParams(layoutParams);
-                this.line.setVisibility(View.GONE);
-                this.day.setVisibility(View.GONE);
-                expanded = false;
-            } else if (day != null && expanded) {
-                this.day.setText(day);
-            } else if (day != null) {
-                final RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) this.container.getLayoutParams();
-                layoutParams.height =
-                        (int) TypedValue.applyDimension(
-                                TypedValue.COMPLEX_UNIT_DIP,
-                                expandedSize,
-                                activity.getResources().getDisplayMetrics()
-                        );
-                this.container.setLayoutParams(layoutParams);
-                this.line.setVisibility(View.VISIBLE);
-                this.day.setVisibility(View.VISIBLE);
-                this.day.setText(day);
-                expanded = true;
-            }
-        }
-
         public void setType(int type) {
             @ColorRes final int colorRes;
             @DrawableRes final int drawableRes;
@@ -16,12 +16,20 @@
 
 package com.bald.uriah.baldphone;
 
+import android.Manifest;
 import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.util.Log;
 
+import androidx.core.content.ContextCompat;
+
 import com.bald.uriah.baldphone.activities.UpdatesActivity;
+import com.bald.uriah.baldphone.broadcast_receivers.PackagesChangedReceiver;
+import com.bald.uriah.baldphone.databases.calls.CallStatsAggregator;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.databases.alarms.AlarmScheduler;
 import com.bald.uriah.baldphone.databases.reminders.ReminderScheduler;
 import com.bald.uriah.baldphone.services.NotificationListenerService;
@@ -56,6 +64,13 @@ public class BaldPhone extends Application {
             Log.e(TAG, e.getMessage());
             e.printStackTrace();
         }
+        // implicit package broadcasts are not delivered to manifest receivers since api 26
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            registerReceiver(new PackagesChangedReceiver(), PackagesChangedReceiver.intentFilter());
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED)
+            ContactsDirectory.getInstance(this);
+        if (!BuildConfig.FLAVOR.equals("gPlay") && ContextCompat.checkSelfPermission(this, Manifest.permission.READ_CALL_LOG) == PackageManager.PERMISSION_GRANTED)
+            CallStatsAggregator.getInstance(this);
         S.sendVersionInfo(this);
     }
 
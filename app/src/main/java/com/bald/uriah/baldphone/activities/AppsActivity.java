@@ -21,8 +21,11 @@ import android.content.Intent;
 import android.graphics.Point;
 import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.view.WindowManager;
+import android.widget.EditText;
 import android.widget.PopupWindow;
 
 import androidx.annotation.NonNull;
@@ -34,6 +37,8 @@ import com.bald.uriah.baldphone.adapters.AppsRecyclerViewAdapter;
 import com.bald.uriah.baldphone.databases.apps.App;
 import com.bald.uriah.baldphone.databases.apps.AppsDatabase;
 import com.bald.uriah.baldphone.databases.apps.AppsDatabaseHelper;
+import com.bald.uriah.baldphone.databases.apps.AppsLabelIndex;
+import com.bald.uriah.baldphone.databases.home_screen_pins.HomeScreenPinHelper;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
 import com.bald.uriah.baldphone.utils.DropDownRecyclerViewAdapter;
@@ -51,6 +56,8 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
     public static final String CHOOSE_MODE = "CHOOSE_MODE";
     public static final int UNINSTALL_REQUEST_CODE = 52;
     private static final String SELECTED_APP_INDEX = "SELECTED_APP_INDEX";
+    public static final int APPS_IN_A_ROW_PORTRAIT = 3;
+    public static final int APPS_IN_A_ROW_LANDSCAPE = 6;
 
     private AppsDatabase appsDatabase;
     private int numberOfAppsInARow;
@@ -58,6 +65,9 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
     private RecyclerView recyclerView;
 
     private AppsRecyclerViewAdapter appsRecyclerViewAdapter;
+    private AppsLabelIndex appsLabelIndex;
+    private EditText et_filter;
+    private App uninstallingApp;
     private String chooseKey;
 
     @Override
@@ -65,19 +75,35 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_apps);
 
-        AppsDatabaseHelper.updateDB(this);
+        AppsDatabaseHelper.syncDB(this);
 
         appsDatabase = AppsDatabase.getInstance(AppsActivity.this);
         final List<App> appList = appsDatabase.appsDatabaseDao().getAllOrderedByABC();
+        appsLabelIndex = new AppsLabelIndex(appList);
         recyclerView = findViewById(R.id.rc_apps);
         chooseKey = getIntent().getStringExtra(CHOOSE_MODE);
         appsRecyclerViewAdapter = new AppsRecyclerViewAdapter(appList, this, chooseKey != null ? this::appChosen : this::showDropDown, recyclerView);
+        et_filter = findViewById(R.id.et_filter);
+        et_filter.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                applyFilter(s);
+            }
+        });
 
         final WindowManager windowManager = getWindowManager();
         final Point point = new Point();
         windowManager.getDefaultDisplay().getSize(point);
         final boolean screenOrientation = (point.x / point.y) != 0;
-        numberOfAppsInARow = screenOrientation ? 6 : 3;
+        numberOfAppsInARow = screenOrientation ? APPS_IN_A_ROW_LANDSCAPE : APPS_IN_A_ROW_PORTRAIT;
         final GridLayoutManager gridLayoutManager = new GridLayoutManager(this, numberOfAppsInARow);
         gridLayoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
             @Override
@@ -107,14 +133,19 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
         super.onRestoreInstanceState(savedInstanceState);
         final int index = savedInstanceState.getInt(SELECTED_APP_INDEX);
         final AppsRecyclerViewAdapter adapter = ((AppsRecyclerViewAdapter) recyclerView.getAdapter());
-        if (index < adapter.dataList.size() && index > 0 && adapter.dataList.get(index).type() != TYPE_HEADER) {
+        if (index < adapter.getItemCount() && index > 0 && adapter.getDataList().get(index).type() != TYPE_HEADER) {
             adapter.index = index;
             recyclerView.getLayoutManager().scrollToPosition(index);
             recyclerView.post(() -> showDropDown(index));
         }
     }
 
+    private void applyFilter(CharSequence filter) {
+        appsRecyclerViewAdapter.submitList(appsLabelIndex.query(filter));
+    }
+
     private void uninstallApp(App app) {
+        uninstallingApp = app;
         final String app_pkg_name = ComponentName.unflattenFromString(app.getFlattenComponentName()).getPackageName();
         startActivityForResult(new Intent(Intent.ACTION_UNINSTALL_PACKAGE)
                 .setData(Uri.parse("package:" + app_pkg_name))
@@ -126,14 +157,20 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == UNINSTALL_REQUEST_CODE) {
             if (resultCode == RESULT_OK) {
-                recreate();
+                if (uninstallingApp != null) {
+                    // the database itself is updated by PackagesChangedReceiver
+                    appsLabelIndex.remove(uninstallingApp);
+                    applyFilter(et_filter.getText());
+                } else
+                    recreate();
             }
+            uninstallingApp = null;
         }
     }
 
     private void showDropDown(final int index) {
         appsRecyclerViewAdapter.index = index;
-        final App app = (App) appsRecyclerViewAdapter.dataList.get(index);
+        final App app = (App) appsRecyclerViewAdapter.getDataList().get(index);
         final View view = Objects.requireNonNull(recyclerView.getLayoutManager()).findViewByPosition(index);
         if (view == null)
             return;
@@ -155,17 +192,15 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
                         viewHolder.pic.setImageResource(app.isPinned() ? R.drawable.remove_on_button : R.drawable.add_on_button);
                         viewHolder.text.setText(app.isPinned() ? R.string.remove_shortcut : R.string.add_shortcut);
                         viewHolder.itemView.setOnClickListener(v1 -> {
-                            if (app.isPinned()) {
-                                appsDatabase.appsDatabaseDao().update(app.getId(), false);
-                                app.setPinned(false);
-                                appsRecyclerViewAdapter.notifyItemChanged(appsRecyclerViewAdapter.index);
-                            } else {
-                                appsDatabase.appsDatabaseDao().update(app.getId(), true);
-                                app.setPinned(true);
-                                appsRecyclerViewAdapter.notifyItemChanged(appsRecyclerViewAdapter.index);
-                            }
+                            // the app is owned by the adapter's list, so a copy with the new state replaces it
+                            final App toggledApp = app.copy();
+                            toggledApp.setPinned(!app.isPinned());
+                            appsDatabase.appsDatabaseDao().update(app.getId(), toggledApp.isPinned());
+                            // room notifies its invalidation tracker asynchronously, and the home screen may be shown before that
+                            HomeScreenPinHelper.invalidate();
+                            appsLabelIndex.replace(toggledApp);
                             popupWindow.dismiss();
-                            showDropDown(index);
+                            appsRecyclerViewAdapter.submitList(appsLabelIndex.query(et_filter.getText()), () -> showDropDown(index));
                         });
                         break;
                     case 2:
@@ -202,14 +237,14 @@ public class AppsActivity extends com.bald.uriah.baldphone.activities.BaldActivi
             }
         }, view);
 
-        if (index + numberOfAppsInARow >= appsRecyclerViewAdapter.dataList.size())
+        if (index + numberOfAppsInARow >= appsRecyclerViewAdapter.getItemCount())
             recyclerView.scrollToPosition(index);
 
     }
 
     private void appChosen(int index) {
         if (index != -1) {
-            final App app = (App) appsRecyclerViewAdapter.dataList.get(index);
+            final App app = (App) appsRecyclerViewAdapter.getDataList().get(index);
             setResult(RESULT_OK, new Intent().setComponent(ComponentName.unflattenFromString(app.getFlattenComponentName())).putExtra(CHOOSE_MODE, chooseKey));
             finish();
         }
@@ -18,7 +18,6 @@ package com.bald.uriah.baldphone.activities;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
@@ -27,7 +26,6 @@ import android.media.ToneGenerator;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Parcelable;
-import android.provider.ContactsContract;
 import android.telecom.PhoneAccountHandle;
 import android.telecom.TelecomManager;
 import android.telephony.SubscriptionInfo;
@@ -46,6 +44,7 @@ import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.activities.contacts.AddContactActivity;
 import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
 import com.bald.uriah.baldphone.databases.contacts.Contact;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.databases.contacts.MiniContact;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
@@ -59,17 +58,13 @@ import static android.media.AudioManager.STREAM_SYSTEM;
 
 public class DialerActivity extends BaldActivity {
     private static final String TAG = DialerActivity.class.getSimpleName();
-    public static final String SORT_ORDER =
-            "upper(" + ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + ") ASC";
-    private final static String[] PROJECTION =
-            {ContactsContract.Data.DISPLAY_NAME, ContactsContract.Data._ID, ContactsContract.Contacts.PHOTO_URI, ContactsContract.Data.LOOKUP_KEY, ContactsContract.Data.STARRED};
     private static final String NUMBER_STATE = "NUMBER_STATE";
     private static final int TONE_DURATION = 300 * D.MILLISECOND;
     private static final int TONE_VOLUME = 75; // 0-100
 
     private ToneGenerator dtmfGenerator;
-    private ContentResolver contentResolver;
     private ContactRecyclerViewAdapter contactRecyclerViewAdapter;
+    private ContactsDirectory.DialerSearch dialerSearch;
     private RecyclerView recyclerView;
     private TextView tv_number;
     private View b_call, b_clear, b_hash, b_sulamit, b_backspace, empty_view;
@@ -146,7 +141,6 @@ public class DialerActivity extends BaldActivity {
         if (!checkPermissions(this, requiredPermissions()))
             return;
         setContentView(R.layout.dialer);
-        contentResolver = getContentResolver();
         playDialSounds = BPrefs.get(this).getBoolean(BPrefs.DIALER_SOUNDS_KEY, BPrefs.DIALER_SOUNDS_DEFAULT_VALUE) && !testing;
         if (playDialSounds)
             dtmfGenerator = new ToneGenerator(STREAM_SYSTEM, TONE_VOLUME);
@@ -172,8 +166,9 @@ public class DialerActivity extends BaldActivity {
     }
 
     private void getContactsByNumberFilter() {
-        final Uri uri = Uri.withAppendedPath(ContactsContract.CommonDataKinds.Phone.CONTENT_FILTER_URI, Uri.encode(number.toString()));
-        final Cursor contactsCursor = contentResolver.query(uri, PROJECTION, null, null, SORT_ORDER);
+        if (dialerSearch == null)
+            dialerSearch = ContactsDirectory.getInstance(this).newDialerSearch();
+        final Cursor contactsCursor = dialerSearch.query(number.toString());
         if (contactRecyclerViewAdapter != null) {
             contactRecyclerViewAdapter.changeCursor(contactsCursor);
         } else {
@@ -473,7 +473,7 @@ public class HomeScreenActivity extends BaldActivity {
         updateViewPager();
     }
 
-    static class UpdateApps extends AsyncTask<Context, Void, Void> {
+    static class UpdateApps extends AsyncTask<Context, Void, Void> implements AppsDatabaseHelper.ProgressListener {
         final WeakReference<HomeScreenActivity> homeScreenWeakReference;
 
         UpdateApps(HomeScreenActivity homeScreen) {
@@ -484,13 +484,29 @@ public class HomeScreenActivity extends BaldActivity {
         @Override
         protected Void doInBackground(Context... contexts) {
             try {
-                AppsDatabaseHelper.updateDB(contexts[0]);
+                AppsDatabaseHelper.syncDB(contexts[0], this);
             } catch (Exception e) {
                 BaldToast.from(contexts[0].getApplicationContext()).setType(BaldToast.TYPE_ERROR).setLength(Toast.LENGTH_LONG).setText(e.getMessage());
             }
             return null;
         }
 
+        @Override
+        public void onProgress(int done, int total) {
+            if (done < total)
+                publishProgress();
+        }
+
+        /**
+         * shows the apps which were already inserted, while the rest are still being loaded
+         */
+        @Override
+        protected void onProgressUpdate(Void... values) {
+            final HomeScreenActivity homeScreen = homeScreenWeakReference.get();
+            if (homeScreen != null)
+                homeScreen.baldPagerAdapter.obtainAppList();
+        }
+
         @Override
         protected void onPostExecute(Void aVoid) {
             HomeScreenActivity homeScreen = homeScreenWeakReference.get();
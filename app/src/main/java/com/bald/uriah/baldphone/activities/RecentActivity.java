@@ -16,18 +16,32 @@
 
 package com.bald.uriah.baldphone.activities;
 
+import android.os.AsyncTask;
 import android.os.Bundle;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.adapters.CallsRecyclerViewAdapter;
+import com.bald.uriah.baldphone.databases.calls.Call;
+import com.bald.uriah.baldphone.databases.calls.CallLogPager;
 import com.bald.uriah.baldphone.databases.calls.CallLogsHelper;
 
+import java.util.List;
+
 public class RecentActivity extends BaldActivity {
+    /**
+     * the next page is loaded when the last visible call is this close to the end of the loaded calls
+     */
+    private static final int LOAD_MORE_THRESHOLD = 20;
     public RecyclerView recyclerView;
+    private CallLogPager callLogPager;
+    private CallsRecyclerViewAdapter callsRecyclerViewAdapter;
+    private boolean loading;
 
     @Override
     protected void onCreate(@Nullable final Bundle savedInstanceState) {
@@ -41,13 +55,47 @@ public class RecentActivity extends BaldActivity {
         final DividerItemDecoration dividerItemDecoration = new DividerItemDecoration(recyclerView.getContext(), DividerItemDecoration.VERTICAL);
         dividerItemDecoration.setDrawable(getDrawable(R.drawable.ll_divider));
         recyclerView.addItemDecoration(dividerItemDecoration);
-        final CallsRecyclerViewAdapter callsRecyclerViewAdapter = new CallsRecyclerViewAdapter(CallLogsHelper.getAllCalls(getContentResolver()), this);
-        CallLogsHelper.markAllAsRead(getContentResolver());
-        recyclerView.setAdapter(callsRecyclerViewAdapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                final LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (callsRecyclerViewAdapter != null && layoutManager != null &&
+                        layoutManager.findLastVisibleItemPosition() >= callsRecyclerViewAdapter.getItemCount() - LOAD_MORE_THRESHOLD)
+                    loadNextPage();
+            }
+        });
+        callLogPager = new CallLogPager(getContentResolver());
+        loadNextPage();
 
         setupYoutube(3);
     }
 
+    /**
+     * loads and resolves the contacts of the next page off the main thread, so binding the calls never queries them
+     */
+    private void loadNextPage() {
+        if (loading || !callLogPager.hasMore())
+            return;
+        loading = true;
+        final boolean firstPage = callsRecyclerViewAdapter == null;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            final List<Call> calls = callLogPager.nextPage();
+            if (firstPage)
+                CallLogsHelper.markAllAsRead(getContentResolver());
+            CallLogsHelper.resolveContacts(this, calls);
+            runOnUiThread(() -> {
+                loading = false;
+                if (isDestroyed())
+                    return;
+                if (callsRecyclerViewAdapter == null) {
+                    callsRecyclerViewAdapter = new CallsRecyclerViewAdapter(calls, this);
+                    recyclerView.setAdapter(callsRecyclerViewAdapter);
+                } else
+                    callsRecyclerViewAdapter.addCalls(calls);
+            });
+        });
+    }
+
     @Override
     protected int requiredPermissions() {
         return PERMISSION_WRITE_CALL_LOG | PERMISSION_READ_CONTACTS;
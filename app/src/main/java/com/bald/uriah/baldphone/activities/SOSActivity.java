@@ -16,14 +16,10 @@
 
 package com.bald.uriah.baldphone.activities;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
-import android.provider.ContactsContract;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -33,14 +29,18 @@ import androidx.annotation.Nullable;
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.activities.contacts.ContactsActivity;
 import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
+import com.bald.uriah.baldphone.databases.contacts.ContactPhoto;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.databases.contacts.MiniContact;
 import com.bald.uriah.baldphone.databases.home_screen_pins.HomeScreenPinHelper;
 import com.bald.uriah.baldphone.views.BaldLinearLayoutButton;
+import com.bumptech.glide.Glide;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.bald.uriah.baldphone.databases.home_screen_pins.HomeScreenPinHelper.SHARED_PREFS_KEY;
@@ -51,8 +51,9 @@ public class SOSActivity extends BaldActivity {
     private BaldLinearLayoutButton ecReal;
 
     private static void setupEC(BaldLinearLayoutButton baldLinearLayoutButton, MiniContact miniContact) {
-        if (miniContact.photo != null)
-            ((ImageView) baldLinearLayoutButton.getChildAt(0)).setImageURI(Uri.parse(miniContact.photo));
+        final ContactPhoto contactPhoto = miniContact.getPhoto();
+        if (contactPhoto != null)
+            Glide.with(baldLinearLayoutButton).load(contactPhoto.fullSize()).apply(ContactPhoto.FULL_SIZE_REQUEST_OPTIONS).into((ImageView) baldLinearLayoutButton.getChildAt(0));
         else
             ((ImageView) baldLinearLayoutButton.getChildAt(0)).setImageResource(R.drawable.face_on_button);
 
@@ -143,33 +144,14 @@ public class SOSActivity extends BaldActivity {
             final Set<String> lookupKeys = context.getSharedPreferences(SHARED_PREFS_KEY, Context.MODE_PRIVATE).getStringSet(HomeScreenPinHelper.PinnedContactPreferences.SOS_KEY, null);
             if (lookupKeys == null)
                 return null;
-            final List<MiniContact> ret = new ArrayList<>(lookupKeys.size());
-            final ContentResolver contentResolver = context.getContentResolver();
-            for (String lookupKey :
-                    lookupKeys) {
-                try (Cursor cursor = contentResolver.query(
-                        ContactsContract.Contacts.CONTENT_URI,
-                        MiniContact.PROJECTION,
-                        ContactsContract.Data.LOOKUP_KEY + " = ?",
-                        new String[]{
-                                lookupKey
-                        }, null)) {
-                    if (cursor.moveToFirst()) {
-                        ret.add(new MiniContact(
-                                lookupKey,
-                                cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME)),
-                                cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI)),
-                                cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts._ID)),
-                                cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts.STARRED)) == 1
-                        ));
-                    } else {
-                        removeContact(context, lookupKey);
-                    }
-
-                } catch (Exception e) {
-                    throw new AssertionError(e);
-                }
-            }
+            final Map<String, MiniContact> pinnedContacts = ContactsDirectory.getInstance(context).getByLookupKeys(lookupKeys);
+            if (pinnedContacts == null)
+                return null;
+            // missing keys were confirmed as deleted by the directory, not just missing from its snapshot
+            for (final String lookupKey : lookupKeys)
+                if (!pinnedContacts.containsKey(lookupKey))
+                    removeContact(context, lookupKey);
+            final List<MiniContact> ret = new ArrayList<>(pinnedContacts.values());
             Collections.sort(ret, (o1, o2) -> o1.name.compareTo(o2.name));
             return ret;
         }
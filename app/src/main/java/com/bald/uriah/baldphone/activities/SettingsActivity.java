@@ -18,6 +18,7 @@ package com.bald.uriah.baldphone.activities;
 
 import android.annotation.SuppressLint;
 import android.content.ActivityNotFoundException;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -26,6 +27,7 @@ import android.media.Ringtone;
 import android.net.Uri;
 import android.nfc.NfcAdapter;
 import android.nfc.NfcManager;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Vibrator;
@@ -53,6 +55,8 @@ import com.bald.uriah.baldphone.BuildConfig;
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.activities.alarms.AlarmScreenActivity;
 import com.bald.uriah.baldphone.activities.pills.PillTimeSetterActivity;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
+import com.bald.uriah.baldphone.databases.contacts.VCards;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
 import com.bald.uriah.baldphone.utils.BPrefs;
@@ -66,6 +70,13 @@ import com.bald.uriah.baldphone.views.ModularRecyclerView;
 import com.bumptech.glide.Glide;
 import com.yqritc.recyclerviewflexibledivider.HorizontalDividerItemDecoration;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -79,6 +90,10 @@ public class SettingsActivity extends BaldActivity {
     private static final String TAG = SettingsActivity.class.getSimpleName();
     public static final float[] FONT_SIZES = new float[]{0.8f, 0.9f, 1.0f, 1.1f, 1.3f, 1.5f, 1.7f};
     public static final String SAVEABLE_HISTORY_KEY = "SAVEABLE_HISTORY_KEY";
+    private static final int IMPORT_CONTACTS_REQUEST_CODE = 1;
+    private static final int EXPORT_CONTACTS_REQUEST_CODE = 2;
+    private static final String VCARD_MIME_TYPE = "text/x-vcard";
+    private static final String[] VCARD_MIME_TYPES = {VCARD_MIME_TYPE, "text/vcard", "text/directory"};
 
     private final Category
             mainCategory = new Category(R.string.settings, R.drawable.settings_on_button, -1),
@@ -148,6 +163,43 @@ public class SettingsActivity extends BaldActivity {
             ringtone.stop();
     }
 
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if ((requestCode != IMPORT_CONTACTS_REQUEST_CODE && requestCode != EXPORT_CONTACTS_REQUEST_CODE) || resultCode != RESULT_OK || data == null || data.getData() == null)
+            return;
+        final Uri uri = data.getData();
+        final Context context = getApplicationContext();
+        final ContentResolver contentResolver = context.getContentResolver();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            String message;
+            try {
+                if (requestCode == IMPORT_CONTACTS_REQUEST_CODE) {
+                    final int imported;
+                    try (Reader reader = new BufferedReader(new InputStreamReader(contentResolver.openInputStream(uri), StandardCharsets.UTF_8))) {
+                        imported = VCards.importVCards(contentResolver, reader, null);
+                    }
+                    final ContactsDirectory contactsDirectory = ContactsDirectory.getInstance(context);
+                    contactsDirectory.invalidate();
+                    contactsDirectory.prefetch();
+                    message = context.getString(R.string.contacts_imported, imported);
+                } else {
+                    final int exported;
+                    try (Writer writer = new BufferedWriter(new OutputStreamWriter(contentResolver.openOutputStream(uri), StandardCharsets.UTF_8))) {
+                        exported = VCards.exportVCards(contentResolver, writer);
+                    }
+                    message = context.getString(R.string.contacts_exported, exported);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, S.str(e.getMessage()));
+                e.printStackTrace();
+                message = context.getString(R.string.an_error_has_occurred);
+            }
+            final String finalMessage = message;
+            runOnUiThread(() -> BaldToast.simple(context, finalMessage));
+        });
+    }
+
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -404,6 +456,32 @@ public class SettingsActivity extends BaldActivity {
         mainCategory.add(
                 new RunnableSettingsItem(R.string.share_baldphone, v -> S.shareBaldPhone(this), R.drawable.share_on_background)
         );
+        mainCategory.add(
+                new BDBSettingsItem(R.string.contacts_backup,
+                        BDB.from(this)
+                                .addFlag(BDialog.FLAG_OK | BDialog.FLAG_CANCEL).setTitle(R.string.contacts_backup)
+                                .setSubText(R.string.contacts_backup_subtext)
+                                .setOptions(R.string.import_contacts, R.string.export_contacts)
+                                .setPositiveButtonListener(params -> {
+                                    if (!checkPermissions(this, PERMISSION_READ_CONTACTS | PERMISSION_WRITE_CONTACTS)) {
+                                        startActivity(new Intent(this, PermissionActivity.class));
+                                        return true;
+                                    }
+                                    // the files are picked with the storage access framework, so no storage permission is needed
+                                    if (params[0].equals(0))
+                                        startActivityForResult(new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                                                .addCategory(Intent.CATEGORY_OPENABLE)
+                                                .setType("*/*")
+                                                .putExtra(Intent.EXTRA_MIME_TYPES, VCARD_MIME_TYPES), IMPORT_CONTACTS_REQUEST_CODE);
+                                    else
+                                        startActivityForResult(new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                                                .addCategory(Intent.CATEGORY_OPENABLE)
+                                                .setType(VCARD_MIME_TYPE)
+                                                .putExtra(Intent.EXTRA_TITLE, "contacts.vcf"), EXPORT_CONTACTS_REQUEST_CODE);
+                                    return true;
+                                }),
+                        R.drawable.upload_on_button)
+        );
 
         mainCategory.add(
                 new RunnableSettingsItem(R.string.feedback,
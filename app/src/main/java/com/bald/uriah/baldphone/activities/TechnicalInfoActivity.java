@@ -26,7 +26,7 @@ import androidx.annotation.Nullable;
 
 import com.bald.uriah.baldphone.BuildConfig;
 import com.bald.uriah.baldphone.R;
-import com.bald.uriah.baldphone.databases.apps.AppsDatabase;
+import com.bald.uriah.baldphone.databases.apps.AppsDatabaseHelper;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
 import com.bald.uriah.baldphone.utils.BPrefs;
@@ -42,7 +42,7 @@ public class TechnicalInfoActivity extends BaldActivity {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        AppsDatabase.getInstance(context).appsDatabaseDao().deleteAll();
+        AppsDatabaseHelper.clearDB(context);
     }
 
     public static boolean deleteDir(File dir) {
@@ -21,11 +21,16 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.OperationCanceledException;
 import android.speech.RecognizerIntent;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
@@ -40,7 +45,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.activities.BaldActivity;
 import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.utils.BaldToast;
+import com.bald.uriah.baldphone.utils.D;
 import com.bald.uriah.baldphone.utils.S;
 import com.bald.uriah.baldphone.utils.SoftInputAssist;
 import com.bald.uriah.baldphone.utils.Toggeler;
@@ -58,6 +65,7 @@ abstract class BaseContactsActivity extends BaldActivity {
     public static final String INTENT_EXTRA_CONTACT_ADAPTER_MODE = "INTENT_EXTRA_CONTACT_ADAPTER_MODE";
     private static final String FILTER_STATE = "FILTER_STATE";
     private static final String FAVORITE_STATE = "FAVORITE_STATE";
+    private static final int FILTER_DEBOUNCE_DELAY = 150 * D.MILLISECOND;
     //<views>
     protected EditText et_filter_input;
     protected ImageView bt_speak, bt_favorite, bt_type;
@@ -71,6 +79,19 @@ abstract class BaseContactsActivity extends BaldActivity {
     private String filter = "";
     private boolean favorite = false;
     private SoftInputAssist softInputAssist;
+    private final Handler handler = new Handler();
+    private final Runnable filterInBackground = this::filterInBackground;
+    @Nullable
+    private CancellationSignal filterCancellationSignal;
+    @Nullable
+    private ContactsDirectory contactsDirectory;
+    /**
+     * called on a background thread after the directory synced, the contacts are filtered again on the ui thread
+     */
+    private final ContactsDirectory.OnChangeListener onContactsChanged = () -> {
+        handler.removeCallbacks(filterInBackground);
+        handler.post(filterInBackground);
+    };
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -90,7 +111,10 @@ abstract class BaseContactsActivity extends BaldActivity {
         attachXml();
         viewsInit();
 
-        applyFilter();
+        contactsDirectory = ContactsDirectory.getInstance(this);
+        contactsDirectory.addOnChangeListener(onContactsChanged);
+        // the first load of the contacts may take a while, so it does not block the ui thread
+        filterInBackground();
     }
 
     @Override
@@ -110,6 +134,9 @@ abstract class BaseContactsActivity extends BaldActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (contactsDirectory != null)
+            contactsDirectory.removeOnChangeListener(onContactsChanged);
+        cancelPendingFilter();
         if (softInputAssist != null)
             softInputAssist.onDestroy();
     }
@@ -163,7 +190,8 @@ abstract class BaseContactsActivity extends BaldActivity {
                     @Override
                     public void afterTextChanged(Editable s) {
                         filter = et_filter_input.getText().toString().toLowerCase();
-                        applyFilter();
+                        handler.removeCallbacks(filterInBackground);
+                        handler.postDelayed(filterInBackground, FILTER_DEBOUNCE_DELAY);
                     }
                 });
 
@@ -220,21 +248,79 @@ abstract class BaseContactsActivity extends BaldActivity {
         }
     }
 
-    protected abstract Cursor getCursorForFilter(String filter, boolean favorite);
+    /**
+     * may be called on a background thread
+     *
+     * @param cancellationSignal cancelled when a newer filter supersedes this one
+     */
+    protected abstract Cursor getCursorForFilter(String filter, boolean favorite, @Nullable CancellationSignal cancellationSignal);
 
+    /**
+     * filters right away, without waiting for the typing to settle
+     */
     public void applyFilter() {
+        filterInBackground();
+    }
+
+    /**
+     * runs the filter after the typing settled, on a background thread.
+     * a newer filter cancels the previous one, so only the latest cursor reaches the adapter.
+     * the letters index is built on the same thread, so opening the letters dialog does not walk the cursor on the ui thread.
+     */
+    private void filterInBackground() {
+        cancelPendingFilter();
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        filterCancellationSignal = cancellationSignal;
+        final String filter = this.filter;
+        final boolean favorite = this.favorite;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            final Cursor cursor;
+            try {
+                cursor = getCursorForFilter(filter, favorite, cancellationSignal);
+            } catch (OperationCanceledException e) {
+                return;
+            }
+            final SparseIntArray letterToPosition = ContactRecyclerViewAdapter.letterToPosition(cursor);
+            runOnUiThread(() -> {
+                if (cancellationSignal.isCanceled() || isDestroyed()) {
+                    cursor.close();
+                    return;
+                }
+                filterCancellationSignal = null;
+                setCursor(cursor, letterToPosition);
+            });
+        });
+    }
+
+    private void cancelPendingFilter() {
+        handler.removeCallbacks(filterInBackground);
+        if (filterCancellationSignal != null) {
+            filterCancellationSignal.cancel();
+            filterCancellationSignal = null;
+        }
+    }
+
+    private void setCursor(Cursor cursor, SparseIntArray letterToPosition) {
         if (contactRecyclerViewAdapter != null) {
-            contactRecyclerViewAdapter.changeCursor(getCursorForFilter(filter, favorite));
+            contactRecyclerViewAdapter.changeCursor(cursor, letterToPosition);
         } else {
             contactRecyclerViewAdapter =
                     new ContactRecyclerViewAdapter(
                             BaseContactsActivity.this,
-                            getCursorForFilter(filter, favorite),
+                            cursor,
+                            letterToPosition,
                             recyclerView,
                             mode);
             recyclerView.setAdapter(contactRecyclerViewAdapter);
+            onContactsLoaded();
         }
+    }
 
+    /**
+     * called once, after the first load of the contacts was set to the adapter.
+     * the first load is asynchronous, so subclasses which inspect the contacts should do it here and not in onCreate.
+     */
+    protected void onContactsLoaded() {
     }
 
     @Override
@@ -246,7 +332,10 @@ abstract class BaseContactsActivity extends BaldActivity {
             et_filter_input.setText(spokenText);
             et_filter_input.setSelection(et_filter_input.getText().length());
         } else if (requestCode == SingleContactActivity.REQUEST_CHECK_CHANGE && resultCode == RESULT_OK) {
-            applyFilter();
+            // the change is shown once the directory synced it, see onContactsChanged
+            final ContactsDirectory contactsDirectory = ContactsDirectory.getInstance(this);
+            contactsDirectory.invalidate();
+            contactsDirectory.prefetch();
         } else
             super.onActivityResult(requestCode, resultCode, data);
     }
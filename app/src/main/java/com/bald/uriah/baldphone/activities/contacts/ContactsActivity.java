@@ -18,14 +18,14 @@ package com.bald.uriah.baldphone.activities.contacts;
 
 import android.content.Intent;
 import android.database.Cursor;
-import android.net.Uri;
-import android.provider.ContactsContract;
+import android.os.CancellationSignal;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.View;
 
+import androidx.annotation.Nullable;
+
 import com.bald.uriah.baldphone.R;
-import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 
 /**
  * Activity for viewing and adding {@link com.bald.uriah.baldphone.databases.contacts.Contact}.
@@ -33,8 +33,6 @@ import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
  */
 public class ContactsActivity extends BaseContactsActivity {
     private static final String TAG = ContactsActivity.class.getSimpleName();
-    private static final String STAR_SELECTION = ContactsContract.Data.STARRED + " = 1";
-    private static final String SORT_ORDER = "upper(" + ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + ") ASC";
     private View add_contact;
 
     @Override
@@ -55,55 +53,12 @@ public class ContactsActivity extends BaseContactsActivity {
     }
 
     @Override
-    protected Cursor getCursorForFilter(String filter, boolean favorite) {
+    protected Cursor getCursorForFilter(String filter, boolean favorite, @Nullable CancellationSignal cancellationSignal) {
+        final ContactsDirectory contactsDirectory = ContactsDirectory.getInstance(this);
         if (!TextUtils.isEmpty(filter) && TextUtils.isDigitsOnly(filter)) {
-            return getContactsByNumberFilter(filter, favorite);
+            return contactsDirectory.queryByNumber(filter, favorite, cancellationSignal);
         } else {
-            return getContactsByNameFilter(filter, favorite);
-        }
-    }
-
-    private Cursor getContactsByNameFilter(String filter, boolean favorite) {
-        final String selection =
-                String.format("%s LIKE ?%s",
-                        ContactsContract.Data.DISPLAY_NAME,
-                        favorite ? (" AND " + STAR_SELECTION) : ""
-                );
-        final String[] args = {"%" + filter + "%"};
-        try {
-            return contentResolver.query(ContactsContract.Contacts.CONTENT_URI,
-                    ContactRecyclerViewAdapter.PROJECTION,
-                    selection,
-                    args,
-                    SORT_ORDER);
-
-        } catch (Exception e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-
-    }
-
-    private Cursor getContactsByNumberFilter(String filter, boolean favorite) {
-        final Uri uri =
-                filter.equals("") ?
-                        ContactsContract.CommonDataKinds.Phone.CONTENT_FILTER_URI :
-                        Uri.withAppendedPath(
-                                ContactsContract.CommonDataKinds.Phone.CONTENT_FILTER_URI,
-                                Uri.encode(filter)
-                        );
-        try {
-            return contentResolver.query(
-                    uri,
-                    ContactRecyclerViewAdapter.PROJECTION,
-                    favorite ? STAR_SELECTION : null,
-                    null,
-                    SORT_ORDER);
-        } catch (Exception e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException(e);
+            return contactsDirectory.queryByName(filter, favorite, cancellationSignal);
         }
     }
 }
\ No newline at end of file
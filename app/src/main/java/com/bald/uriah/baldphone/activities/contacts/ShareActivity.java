@@ -19,18 +19,19 @@ package com.bald.uriah.baldphone.activities.contacts;
 import android.content.Intent;
 import android.content.pm.ResolveInfo;
 import android.database.Cursor;
-import android.os.Bundle;
-import android.provider.ContactsContract;
+import android.os.CancellationSignal;
 import android.telephony.PhoneNumberUtils;
 import android.util.Log;
 import android.view.View;
 
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter;
 import com.bald.uriah.baldphone.adapters.IntentAdapter;
-import com.bald.uriah.baldphone.databases.contacts.Contact;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
+import com.bald.uriah.baldphone.databases.contacts.WhatsAppNumbersIndex;
 import com.bald.uriah.baldphone.utils.BaldToast;
 import com.bald.uriah.baldphone.utils.D;
 import com.bald.uriah.baldphone.utils.S;
@@ -49,12 +50,6 @@ import java.util.List;
 public class ShareActivity extends BaseContactsActivity {
     private static final String TAG = ShareActivity.class.getSimpleName();
     public static final String EXTRA_SHARABLE_URI = "EXTRA_SHARABLE_URI";
-    public static final String SORT_ORDER =
-            "upper(" + ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + ") ASC";
-    private static final String STAR_SELECTION =
-            "AND " + ContactsContract.Data.STARRED + " = 1";
-    private static final String SELECTION_NAME =
-            ContactsContract.Data.MIMETYPE + "='" + "vnd.android.cursor.item/vnd.com.whatsapp.profile" + "' AND " + ContactsContract.RawContacts.ACCOUNT_TYPE + "= ? AND " + ContactsContract.Data.DISPLAY_NAME + " LIKE ?";
     private Intent shareIntent;
     private BaldSwitch bald_switch;
     private ModularRecyclerView recyclerView;
@@ -62,11 +57,9 @@ public class ShareActivity extends BaseContactsActivity {
     private List<ResolveInfo> resolveInfoList = Collections.EMPTY_LIST;
 
     @Override
-    protected void onCreate(@Nullable Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        if (!checkPermissions(this, requiredPermissions()))
-            return;
-        if (recyclerView != null && super.recyclerView.getAdapter().getItemCount() == 0) {
+    protected void onContactsLoaded() {
+        final RecyclerView.Adapter adapter = super.recyclerView.getAdapter();
+        if (recyclerView != null && adapter != null && adapter.getItemCount() == 0) {
             differently_container.setVisibility(View.VISIBLE);
             whatsapp_container.setVisibility(View.GONE);
             bald_switch.setVisibility(View.GONE);
@@ -116,40 +109,20 @@ public class ShareActivity extends BaseContactsActivity {
     }
 
     @Override
-    protected Cursor getCursorForFilter(String filter, boolean favorite) {
-        return getContactsByNameFilter(filter, favorite);
-
-    }
-
-    private Cursor getContactsByNameFilter(String filter, boolean favorite) {
-        final String[] args = {"com.whatsapp", "%" + filter + "%"};
-        try {
-            return contentResolver.query(ContactsContract.Data.CONTENT_URI,
-                    ContactRecyclerViewAdapter.PROJECTION,
-                    SELECTION_NAME + (favorite ? (STAR_SELECTION) : ("")),
-                    args,
-                    SORT_ORDER);
-
-        } catch (Exception e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+    protected Cursor getCursorForFilter(String filter, boolean favorite, @Nullable CancellationSignal cancellationSignal) {
+        return ContactsDirectory.getInstance(this).queryWhatsAppByName(filter, favorite, cancellationSignal);
     }
 
     public void whatsappShare(String lookupKey) {
-        final Contact contact;
-        try {
-            contact = Contact.fromLookupKey(lookupKey, contentResolver);
-        } catch (Contact.ContactNotFoundException e) {
-            Log.e(TAG, S.str(e.getMessage()));
-            e.printStackTrace();
+        final List<String> whatsappNumbers = WhatsAppNumbersIndex.getInstance(this).getNumbers(lookupKey);
+        if (whatsappNumbers.isEmpty()) {
+            Log.e(TAG, "no whatsapp number for " + lookupKey);
             BaldToast.error(this);
             finish();
             return;
         }
         shareIntent.setPackage(D.WHATSAPP_PACKAGE_NAME);
-        String smsNumber = PhoneNumberUtils.stripSeparators(contact.getWhatsappNumbers().get(0)).replace("+", "").replace(" ", "");
+        String smsNumber = PhoneNumberUtils.stripSeparators(whatsappNumbers.get(0)).replace("+", "").replace(" ", "");
         shareIntent.putExtra("jid", smsNumber + "@s.whatsapp.net"); //phone number without "+" prefix
         startActivity(shareIntent);
         finish();
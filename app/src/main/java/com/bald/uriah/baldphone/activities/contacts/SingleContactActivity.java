@@ -25,6 +25,7 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.media.MediaPlayer;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.provider.ContactsContract;
@@ -48,6 +49,7 @@ import com.bald.uriah.baldphone.activities.SOSActivity;
 import com.bald.uriah.baldphone.adapters.CallsRecyclerViewAdapter;
 import com.bald.uriah.baldphone.databases.calls.Call;
 import com.bald.uriah.baldphone.databases.calls.CallLogsHelper;
+import com.bald.uriah.baldphone.databases.calls.CallStats;
 import com.bald.uriah.baldphone.databases.contacts.Contact;
 import com.bald.uriah.baldphone.databases.home_screen_pins.HomeScreenPinHelper;
 import com.bald.uriah.baldphone.utils.BDB;
@@ -87,6 +89,10 @@ public class SingleContactActivity extends BaldActivity {
     private LayoutInflater layoutInflater;
     private Contact contact; //final
     private boolean changed;
+    /**
+     * incremented whenever the history is cleared, so a history which was read before that is dropped
+     */
+    private int historyGeneration;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -111,6 +117,7 @@ public class SingleContactActivity extends BaldActivity {
     protected void onStart() {
         super.onStart();
 
+        historyGeneration++;
         final int childCount = ll.getChildCount();
         if (childCount > 2)
             ll.removeViews(2, ll.getChildCount() - 2);
@@ -173,15 +180,22 @@ public class SingleContactActivity extends BaldActivity {
 
         inflateAdders();
 
-        final List<Call> callList =
-                CallLogsHelper.getForSpecificContact(contentResolver, contact);
-        if (!callList.isEmpty())
-            inflateHistory(callList);
-
+        // the call log and the call stats are read on a background thread, the history is added once they were read
+        final int generation = historyGeneration;
+        final Contact contact = this.contact;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            final List<Call> callList = CallLogsHelper.getForSpecificContact(this, contact);
+            final CallStats callStats = CallLogsHelper.getStatsForSpecificContact(this, contact);
+            runOnUiThread(() -> {
+                if (generation == historyGeneration && !isDestroyed() && !callList.isEmpty())
+                    inflateHistory(callList, callStats);
+            });
+        });
     }
 
     @Override
     protected void onStop() {
+        historyGeneration++;
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
@@ -390,8 +404,13 @@ public class SingleContactActivity extends BaldActivity {
         }
     }
 
-    private void inflateHistory(List<Call> callList) {
+    /**
+     * @param callStats counters of every call with the numbers of the contact, including calls which are not in the call list
+     */
+    private void inflateHistory(List<Call> callList, @Nullable CallStats callStats) {
         final View view = layoutInflater.inflate(R.layout.contact_history, ll, false);
+        if (callStats != null)
+            ((TextView) view.findViewById(R.id.textView)).setText(getString(R.string.call_log_count, getString(R.string.call_log), callStats.getCallCount()));
         final ScrollingHelper scrollingHelper = view.findViewById(R.id.scrolling_helper);
         final RecyclerView recyclerView = scrollingHelper.findViewById(R.id.child);
         final DividerItemDecoration dividerItemDecoration =
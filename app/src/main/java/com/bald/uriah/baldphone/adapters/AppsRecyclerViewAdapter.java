@@ -28,7 +28,10 @@ import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -43,12 +46,33 @@ import com.bald.uriah.baldphone.views.ModularRecyclerView;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<RecyclerView.ViewHolder> {
     public static final int TYPE_HEADER = 0;
     public static final int TYPE_ITEM = 1;
     public final float elevation;
-    public final List<InAppsRecyclerView> dataList;
+    private static final DiffUtil.ItemCallback<InAppsRecyclerView> DIFF_CALLBACK = new DiffUtil.ItemCallback<InAppsRecyclerView>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull InAppsRecyclerView oldItem, @NonNull InAppsRecyclerView newItem) {
+            if (oldItem instanceof App && newItem instanceof App)
+                return ((App) oldItem).getFlattenComponentName().equals(((App) newItem).getFlattenComponentName());
+            if (oldItem instanceof AppStickyHeader && newItem instanceof AppStickyHeader)
+                return ((AppStickyHeader) oldItem).name.equals(((AppStickyHeader) newItem).name);
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull InAppsRecyclerView oldItem, @NonNull InAppsRecyclerView newItem) {
+            if (oldItem instanceof App) {
+                final App oldApp = (App) oldItem, newApp = (App) newItem;
+                return oldApp.isPinned() == newApp.isPinned() &&
+                        Objects.equals(oldApp.getLabel(), newApp.getLabel()) &&
+                        Objects.equals(oldApp.getIconHash(), newApp.getIconHash());
+            }
+            return true;
+        }
+    };
     @ColorInt
     private final int textColorOnSelected, textColorOnBackground;
     private final Drawable selectedDrawable;
@@ -56,7 +80,8 @@ public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<
     private final RecyclerView caller;
     private final BaldActivity activity;
     private final LayoutInflater layoutInflater;
-    private final SparseIntArray letterToPosition;
+    private final AsyncListDiffer<InAppsRecyclerView> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private SparseIntArray letterToPosition = new SparseIntArray();
     public int index = -1;
     public AppViewHolder lastView;
     private boolean appsOneGrid;
@@ -73,26 +98,51 @@ public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<
                         activity.getResources().getDisplayMetrics());
         this.changeAppListener = changeAppListener;
         this.appsOneGrid = BPrefs.get(activity).getBoolean(BPrefs.APPS_ONE_GRID_KEY, BPrefs.APPS_ONE_GRID_DEFAULT_VALUE);
-        letterToPosition = new SparseIntArray();
-        dataList = new ArrayList<>((int) (appList.size() * 1.5));
+        submitList(appList);
+
+        final TypedValue typedValue = new TypedValue();
+        Resources.Theme theme = activity.getTheme();
+        theme.resolveAttribute(R.attr.bald_text_on_selected, typedValue, true);
+        textColorOnSelected = typedValue.data;
+        theme.resolveAttribute(R.attr.bald_text_on_background, typedValue, true);
+        textColorOnBackground = typedValue.data;
+    }
+
+    /**
+     * Replaces the apps of the adapter. the diff between the lists is computed in the background,
+     * and only the changed cells are animated and rebound. the headers are diffed by their letter,
+     * and the letters index is swapped together with the list it belongs to.
+     */
+    public void submitList(List<App> appList) {
+        submitList(appList, null);
+    }
+
+    /**
+     * @param commitCallback called once the list is shown
+     */
+    public void submitList(List<App> appList, @Nullable Runnable commitCallback) {
+        final SparseIntArray newLetterToPosition = new SparseIntArray();
+        final List<InAppsRecyclerView> newDataList = new ArrayList<>((int) (appList.size() * 1.5));
         String lastChar = "";
         String disChar;
         for (int i = 0; i < appList.size(); i++) {
             disChar = appList.get(i).getLabel().substring(0, 1).toUpperCase();
             if (!appsOneGrid && !disChar.equals(lastChar)) {
-                dataList.add(new AppStickyHeader(disChar));
-                letterToPosition.append(disChar.charAt(0), dataList.size() - 1);
+                newDataList.add(new AppStickyHeader(disChar));
+                newLetterToPosition.append(disChar.charAt(0), newDataList.size() - 1);
             }
-            dataList.add(appList.get(i));
+            newDataList.add(appList.get(i));
             lastChar = disChar;
         }
+        differ.submitList(newDataList, () -> {
+            letterToPosition = newLetterToPosition;
+            if (commitCallback != null)
+                commitCallback.run();
+        });
+    }
 
-        final TypedValue typedValue = new TypedValue();
-        Resources.Theme theme = activity.getTheme();
-        theme.resolveAttribute(R.attr.bald_text_on_selected, typedValue, true);
-        textColorOnSelected = typedValue.data;
-        theme.resolveAttribute(R.attr.bald_text_on_background, typedValue, true);
-        textColorOnBackground = typedValue.data;
+    public List<InAppsRecyclerView> getDataList() {
+        return differ.getCurrentList();
     }
 
     @NonNull
@@ -116,12 +166,12 @@ public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<
 
     @Override
     public int getItemViewType(int position) {
-        return dataList.get(position).type();
+        return getDataList().get(position).type();
     }
 
     @Override
     public int getItemCount() {
-        return dataList.size();
+        return getDataList().size();
     }
 
     public interface InAppsRecyclerView {
@@ -155,7 +205,7 @@ public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<
         }
 
         public void update(int position) {
-            tv_letter.setText(((AppStickyHeader) dataList.get(position)).name);
+            tv_letter.setText(((AppStickyHeader) getDataList().get(position)).name);
         }
     }
 
@@ -179,7 +229,7 @@ public class AppsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<
         }
 
         public void update(final int index) {
-            final App app = (App) AppsRecyclerViewAdapter.this.dataList.get(index);
+            final App app = (App) getDataList().get(index);
             this.app_name.setText(app.getLabel());
             AppsDatabaseHelper.loadPic(app, app_icon);
 
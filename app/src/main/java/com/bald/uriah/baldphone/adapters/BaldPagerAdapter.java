@@ -61,8 +61,15 @@ public class BaldPagerAdapter extends BaldViewAdapter {
         numItems = numItemsBefore = startingPage + 1;
     }
 
+    /**
+     * The pinned pages are only rebuilt if the pinned items changed, see {@link HomeScreenPinHelper#getAll(android.content.Context)}.
+     * each page binds its own items when it is instantiated, in {@link HomeViewFactory#populate(int)}.
+     */
     public void obtainAppList() {
-        pinnedList = HomeScreenPinHelper.getAll(homeScreen);
+        final List<HomeScreenPinHelper.HomeScreenPinnable> newPinnedList = HomeScreenPinHelper.getAll(homeScreen);
+        if (newPinnedList == pinnedList)
+            return;
+        pinnedList = newPinnedList;
         numItems =
                 numItemsBefore + (pinnedList.size() / HomeViewFactory.AMOUNT_PER_PAGE + (pinnedList.size() % HomeViewFactory.AMOUNT_PER_PAGE == 0 ? 0 : 1));
         notifyDataSetChanged();
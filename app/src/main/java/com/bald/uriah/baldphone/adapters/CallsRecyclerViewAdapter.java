@@ -19,7 +19,6 @@ package com.bald.uriah.baldphone.adapters;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
@@ -34,7 +33,6 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.ColorRes;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -44,19 +42,26 @@ import com.bald.uriah.baldphone.activities.DialerActivity;
 import com.bald.uriah.baldphone.activities.contacts.AddContactActivity;
 import com.bald.uriah.baldphone.activities.contacts.SingleContactActivity;
 import com.bald.uriah.baldphone.databases.calls.Call;
+import com.bald.uriah.baldphone.databases.contacts.ContactPhoto;
 import com.bald.uriah.baldphone.databases.contacts.MiniContact;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
+import com.bald.uriah.baldphone.utils.D;
 import com.bald.uriah.baldphone.utils.RandomColorMaker;
 import com.bald.uriah.baldphone.utils.S;
 import com.bald.uriah.baldphone.views.ModularRecyclerView;
 import com.bumptech.glide.Glide;
 
-import org.joda.time.DateTime;
-
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.TimeZone;
 
-public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<CallsRecyclerViewAdapter.ViewHolder> {
+/**
+ * Calls grouped by day, every day starts with a header row.
+ * the rows are computed once when calls are added, so binding a row only reads them.
+ */
+public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<RecyclerView.ViewHolder> {
     private static final String TAG = CallsRecyclerViewAdapter.class.getSimpleName();
 
     public static final int INCOMING_TYPE = 1;
@@ -68,16 +73,32 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
     public static final int BLOCKED_TYPE = 6;
     public static final int ANSWERED_EXTERNALLY_TYPE = 7;
 
+    private static final int CALL_VIEW_TYPE = 0;
+    private static final int DAY_VIEW_TYPE = 1;
+
     @ColorInt
     private final int textColorOnRegular;
     private final List<Call> callList;
+    /**
+     * the time of every call in {@link #callList}, as shown
+     */
+    private final List<String> callTimes;
+    private final List<String> days = new ArrayList<>();
+    /**
+     * for every row, the index of its call in {@link #callList}, or -1 - the index of its day in {@link #days} for headers
+     */
+    private int[] rows = new int[0];
+    private int rowCount;
+    private int lastEpochDay = Integer.MIN_VALUE;
+    private final TimeZone timeZone = TimeZone.getDefault();
     private final BaldActivity activity;
     private final LayoutInflater inflater;
-    private final Drawable letterContactBackground, privateFace, face;
+    private final Drawable privateFace, face;
     private RandomColorMaker randomColorMaker;
 
     public CallsRecyclerViewAdapter(List<Call> callList, BaldActivity activity) {
-        this.callList = callList;
+        this.callList = new ArrayList<>(callList.size());
+        this.callTimes = new ArrayList<>(callList.size());
         this.activity = activity;
         this.inflater = (LayoutInflater) activity.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
 
@@ -86,39 +107,87 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
         theme.resolveAttribute(R.attr.bald_decoration_on_button, typedValue, true);
         textColorOnRegular = typedValue.data;
         theme.resolveAttribute(R.attr.bald_background, typedValue, true);
-        this.letterContactBackground = new ColorDrawable(typedValue.data);
         this.randomColorMaker = new RandomColorMaker(typedValue.data);
         this.privateFace = activity.getDrawable(R.drawable.private_face_in_recent_calls);
         this.face = activity.getDrawable(R.drawable.face_in_recent_calls);
+        appendCalls(callList);
     }
 
     @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == DAY_VIEW_TYPE)
+            return new DayViewHolder(inflater.inflate(R.layout.calls_day_item, parent, false));
         return new ViewHolder(inflater.inflate(R.layout.calls_item, parent, false));
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         super.onBindViewHolder(holder, position);
-        holder.update(position);
+        final int row = rows[position];
+        if (row < 0)
+            ((DayViewHolder) holder).day.setText(days.get(-1 - row));
+        else
+            ((ViewHolder) holder).update(row);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows[position] < 0 ? DAY_VIEW_TYPE : CALL_VIEW_TYPE;
     }
 
     @Override
     public int getItemCount() {
-        return callList.size();
+        return rowCount;
     }
 
-    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
-        private static final int expandedSize = 150;
-        private static final int notExpandedSize = 100;
+    /**
+     * appends older calls, like the next page of {@link com.bald.uriah.baldphone.databases.calls.CallLogPager}
+     */
+    public void addCalls(List<Call> calls) {
+        if (calls.isEmpty())
+            return;
+        final int start = rowCount;
+        appendCalls(calls);
+        notifyItemRangeInserted(start, rowCount - start);
+    }
+
+    /**
+     * adds the rows of the calls, calls must be sorted from the newest to the oldest and older than the calls which were added before.
+     * a header row is added before the first call of every local day.
+     */
+    private void appendCalls(List<Call> calls) {
+        if (rows.length < rowCount + calls.size() * 2)
+            rows = Arrays.copyOf(rows, Math.max(rows.length * 2, rowCount + calls.size() * 2));
+        for (final Call call : calls) {
+            final long localTime = call.dateTime + timeZone.getOffset(call.dateTime);
+            final int epochDay = (int) (localTime / D.DAY);
+            if (epochDay != lastEpochDay) {
+                days.add(S.stringTimeFromLong(activity, call.dateTime, false));
+                rows[rowCount++] = -days.size();
+                lastEpochDay = epochDay;
+            }
+            final int minuteOfDay = (int) (localTime % D.DAY / D.MINUTE);
+            callTimes.add(S.numberToAlarmString(minuteOfDay / 60, minuteOfDay % 60));
+            rows[rowCount++] = callList.size();
+            callList.add(call);
+        }
+    }
+
+    static class DayViewHolder extends RecyclerView.ViewHolder {
+        final TextView day;
+
+        DayViewHolder(View itemView) {
+            super(itemView);
+            day = itemView.findViewById(R.id.day);
+        }
+    }
 
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         final ImageView profile_pic, iv_type;
-        final TextView tv_type, contact_name, tv_time, image_letter, day;
-        final View line;
+        final TextView tv_type, contact_name, tv_time, image_letter;
         final FrameLayout fl_contact_only;
         final LinearLayout container, ll_contact_only;
-        private boolean expanded;
 
         public ViewHolder(View itemView) {
             super(itemView);
@@ -130,8 +199,6 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
             contact_name = container.findViewById(R.id.contact_name);
             tv_time = container.findViewById(R.id.tv_time);
             image_letter = container.findViewById(R.id.image_letter);
-            line = container.findViewById(R.id.line);
-            day = container.findViewById(R.id.day);
             fl_contact_only = container.findViewById(R.id.fl_contact_only);
             ll_contact_only.setOnClickListener(this);
         }
@@ -140,21 +207,19 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
             final Call call = callList.get(index);
             final MiniContact miniContact = call.getMiniContact(activity);
             if (miniContact != null) {
-                if (miniContact.photo == null) {
-                    image_letter.setText(miniContact.name != null ?
-                            miniContact.name.length() >= 1 ?
+                final ContactPhoto contactPhoto = miniContact.getPhoto();
+                if (contactPhoto == null) {
+                    randomColorMaker.applyLetterAvatar(
+                            profile_pic,
+                            image_letter,
+                            miniContact.name != null && miniContact.name.length() >= 1 ?
                                     miniContact.name.substring(0, 1).toUpperCase() :
-                                    null :
-                            null);
-                    image_letter.setVisibility(View.VISIBLE);
-                    Glide.with(profile_pic).load(
-                            activity.colorful ?
-                                    new ColorDrawable(randomColorMaker.generateColor(miniContact.lookupKey.hashCode())) :
-                                    letterContactBackground
-                    ).into(profile_pic);
+                                    null,
+                            miniContact.lookupKey.hashCode(),
+                            activity.colorful);
                 } else {
                     if (S.isValidContextForGlide(profile_pic.getContext()))
-                        Glide.with(profile_pic).load(miniContact.photo).into(profile_pic);
+                        Glide.with(profile_pic).load(contactPhoto).apply(ContactPhoto.REQUEST_OPTIONS).into(profile_pic);
                     image_letter.setVisibility(View.INVISIBLE);
                 }
                 contact_name.setText(miniContact.name);
@@ -174,47 +239,7 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
             }
 
             setType(call.callType);
-            setDay(
-                    (index == 0 ||
-                            new DateTime(callList.get(index - 1).dateTime).getDayOfYear() !=
-                                    new DateTime(call.dateTime).getDayOfYear()) ?
-                            S.stringTimeFromLong(activity, call.dateTime, false) :
-                            null
-            );
-
-            final DateTime dateTime = new DateTime(call.dateTime);
-            tv_time.setText(S.numberToAlarmString(dateTime.getHourOfDay(), dateTime.getMinuteOfHour()));
-        }
-
-        public void setDay(final @Nullable String day) {
-            if (day == null && expanded) {
-                RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) this.container.getLayoutParams();
-                layoutParams.height =
-                        (int) TypedValue.applyDimension(
-                                TypedValue.COMPLEX_UNIT_DIP,
-                                notExpandedSize,
-                                activity.getResources().getDisplayMetrics()
-                        );
-                this.container.setLayoutParams(layoutParams);
-                this.line.setVisibility(View.GONE);
-                this.day.setVisibility(View.GONE);
-                expanded = false;
-            } else if (day != null && expanded) {
-                this.day.setText(day);
-            } else if (day != null) {
-                final RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) this.container.getLayoutParams();
-                layoutParams.height =
-                        (int) TypedValue.applyDimension(
-                                TypedValue.COMPLEX_UNIT_DIP,
-                                expandedSize,
-                                activity.getResources().getDisplayMetrics()
-                        );
-                this.container.setLayoutParams(layoutParams);
-                this.line.setVisibility(View.VISIBLE);
-                this.day.setVisibility(View.VISIBLE);
-                this.day.setText(day);
-                expanded = true;
-            }
+            tv_time.setText(callTimes.get(index));
         }
 
         public void setType(int type) {
@@ -262,7 +287,10 @@ public class CallsRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter
 
         @Override
         public void onClick(View v) {
-            final Call call = callList.get(getAdapterPosition());
+            final int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION || rows[position] < 0)
+                return;
+            final Call call = callList.get(rows[position]);
             final MiniContact miniContact = call.getMiniContact(activity);
             if (miniContact != null) {
                 activity.startActivity(
@@ -19,9 +19,6 @@ package com.bald.uriah.baldphone.adapters;
 import android.content.Intent;
 import android.content.res.Resources;
 import android.database.Cursor;
-import android.graphics.drawable.ColorDrawable;
-import android.graphics.drawable.Drawable;
-import android.net.Uri;
 import android.provider.ContactsContract;
 import android.util.SparseIntArray;
 import android.util.TypedValue;
@@ -45,33 +42,58 @@ import com.bald.uriah.baldphone.activities.BaldActivity;
 import com.bald.uriah.baldphone.activities.SOSActivity;
 import com.bald.uriah.baldphone.activities.contacts.ShareActivity;
 import com.bald.uriah.baldphone.activities.contacts.SingleContactActivity;
+import com.bald.uriah.baldphone.databases.contacts.ContactPhoto;
 import com.bald.uriah.baldphone.fragments_and_dialogs.LetterChooserDialog;
 import com.bald.uriah.baldphone.utils.RandomColorMaker;
 import com.bald.uriah.baldphone.views.ModularRecyclerView;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 
-public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<ContactRecyclerViewAdapter.ViewHolder> {
+import java.util.Collections;
+import java.util.List;
+
+public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapter<ContactRecyclerViewAdapter.ViewHolder> implements ListPreloader.PreloadModelProvider<ContactPhoto> {
     public final static String[] PROJECTION = {
             ContactsContract.Data.DISPLAY_NAME,
             ContactsContract.Data._ID,
             ContactsContract.Contacts.PHOTO_URI,
             ContactsContract.Data.LOOKUP_KEY,
-            ContactsContract.Data.STARRED};
+            ContactsContract.Data.STARRED,
+            ContactsContract.Contacts.PHOTO_ID};
     public static final int MODE_DEFAULT = 0;
     public static final int MODE_SOS = 1;
     public static final int MODE_SHARE = 2;
+    /**
+     * how many rows ahead of the scroll direction have their photos loaded
+     */
+    private static final int PHOTOS_TO_PRELOAD = 10;
     private final BaldActivity activity;
     private final LayoutInflater layoutInflater;
-    private final Drawable letterContactBackground;
-    private final SparseIntArray letterToPosition;
     private final RecyclerView recyclerView;
     private final int mode;
     @ColorInt
     private final int textColorOnGold, textColorOnButton;
     private RandomColorMaker randomColorMaker;
     private Cursor cursor;
+    private int nameIndex, lookupKeyIndex, photoIdIndex, starredIndex;
+    /**
+     * for the {@link LetterChooserDialog}, built with {@link #letterToPosition(Cursor)} together with the cursor off the ui thread,
+     * or lazily once per cursor if it was not given
+     */
+    @Nullable
+    private SparseIntArray letterToPosition;
 
     public ContactRecyclerViewAdapter(BaldActivity activity, Cursor cursor, RecyclerView recyclerView, @IntRange(from = MODE_DEFAULT, to = MODE_SHARE) int mode) {
+        this(activity, cursor, null, recyclerView, mode);
+    }
+
+    /**
+     * @param letterToPosition the index of the cursor, see {@link #letterToPosition(Cursor)}, or null to build it when it is needed
+     */
+    public ContactRecyclerViewAdapter(BaldActivity activity, Cursor cursor, @Nullable SparseIntArray letterToPosition, RecyclerView recyclerView, @IntRange(from = MODE_DEFAULT, to = MODE_SHARE) int mode) {
         this.mode = mode;
         this.activity = activity;
         this.layoutInflater = LayoutInflater.from(activity);
@@ -80,36 +102,70 @@ public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapt
         final TypedValue typedValue = new TypedValue();
         final Resources.Theme theme = activity.getTheme();
         theme.resolveAttribute(R.attr.bald_background, typedValue, true);
-        this.letterContactBackground = new ColorDrawable(typedValue.data);
         this.randomColorMaker = new RandomColorMaker(typedValue.data);
-        letterToPosition = new SparseIntArray();
         theme.resolveAttribute(R.attr.bald_text_on_gold, typedValue, true);
         textColorOnGold = typedValue.data;
         theme.resolveAttribute(R.attr.bald_text_on_button, typedValue, true);
         textColorOnButton = typedValue.data;
 
-        applyToCursor();
+        applyToCursor(letterToPosition);
+        recyclerView.addOnScrollListener(
+                new RecyclerViewPreloader<>(
+                        Glide.with(activity),
+                        this,
+                        new FixedPreloadSizeProvider<>(ContactPhoto.THUMBNAIL_SIZE, ContactPhoto.THUMBNAIL_SIZE),
+                        PHOTOS_TO_PRELOAD));
     }
 
-    private void applyToCursor() {
-        letterToPosition.clear();
-        cursor.moveToFirst();
-        String previousFirstLetter = null;
-        String tmpThis;
-
-        for (int i = 0; i < cursor.getCount(); i++) {
-            cursor.moveToPosition(i);
-            tmpThis = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME)).substring(0, 1).toUpperCase();
-            if (!tmpThis.equals(previousFirstLetter)) {
-                letterToPosition.append(tmpThis.charAt(0), i);
-            }
-            previousFirstLetter = tmpThis;
+    private void applyToCursor(@Nullable SparseIntArray letterToPosition) {
+        nameIndex = cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME);
+        lookupKeyIndex = cursor.getColumnIndex(ContactsContract.Data.LOOKUP_KEY);
+        photoIdIndex = cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_ID);
+        starredIndex = cursor.getColumnIndex(ContactsContract.Data.STARRED);
+        this.letterToPosition = letterToPosition;
+    }
+
+    private SparseIntArray getLetterToPosition() {
+        if (letterToPosition == null)
+            letterToPosition = letterToPosition(cursor);
+        return letterToPosition;
+    }
+
+    /**
+     * walks the whole cursor, so should be called on the thread which queried it, before it is given to the adapter.
+     *
+     * @return the position of the first contact of every first letter, for {@link LetterChooserDialog}
+     */
+    @NonNull
+    public static SparseIntArray letterToPosition(@NonNull Cursor cursor) {
+        final SparseIntArray letterToPosition = new SparseIntArray();
+        final int nameIndex = cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME);
+        final int position = cursor.getPosition();
+        char previousFirstLetter = 0;
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            final char firstLetter = firstLetterOf(cursor.getString(nameIndex));
+            if (firstLetter != previousFirstLetter)
+                letterToPosition.append(firstLetter, i);
+            previousFirstLetter = firstLetter;
         }
+        cursor.moveToPosition(position);
+        return letterToPosition;
+    }
+
+    private static char firstLetterOf(String name) {
+        return Character.toUpperCase(name.charAt(0));
     }
 
     public void changeCursor(@NonNull Cursor cursor) {
+        changeCursor(cursor, null);
+    }
+
+    /**
+     * @param letterToPosition the index of the cursor, see {@link #letterToPosition(Cursor)}, or null to build it when it is needed
+     */
+    public void changeCursor(@NonNull Cursor cursor, @Nullable SparseIntArray letterToPosition) {
         this.cursor = cursor;
-        applyToCursor();
+        applyToCursor(letterToPosition);
         notifyDataSetChanged();
 
         if (getItemCount() > 0) {
@@ -139,19 +195,19 @@ public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapt
         super.onBindViewHolder(holder, position);
         cursor.moveToPosition(position);
 
-        holder.lookupKey = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.LOOKUP_KEY));
-        final String name = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME));
-        final String letter = name.substring(0, 1).toUpperCase();
-        holder.setFavorite(cursor.getInt(cursor.getColumnIndex(ContactsContract.Data.STARRED)) == 1);
+        holder.lookupKey = cursor.getString(lookupKeyIndex);
+        final String name = cursor.getString(nameIndex);
+        final String letter = String.valueOf(firstLetterOf(name));
+        holder.setFavorite(cursor.getInt(starredIndex) == 1);
         holder.tv_contact_name.setText(name);
+        final ContactPhoto contactPhoto = ContactPhoto.of(holder.lookupKey, cursor.getLong(photoIdIndex));
 
         if (position == 0) {
             holder.setLetter(name.substring(0, 1));
         } else {
             final boolean moved = cursor.moveToPosition(position - 1);
             if (moved) {
-                final String prevNameFirstLetter = cursor.getString(cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME)).substring(0, 1).toUpperCase();
-                if (!prevNameFirstLetter.equals(letter)) {
+                if (firstLetterOf(cursor.getString(nameIndex)) != letter.charAt(0)) {
                     holder.setLetter(letter);
                 } else
                     holder.setLetter(null);
@@ -160,11 +216,11 @@ public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapt
             }
             cursor.moveToPosition(position);
         }
-        if (cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI)) != null) {
-            holder.iv_contact_pic.setImageURI(Uri.parse(cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI))));
+        if (contactPhoto != null) {
+            Glide.with(holder.iv_contact_pic).load(contactPhoto).apply(ContactPhoto.REQUEST_OPTIONS).into(holder.iv_contact_pic);
             holder.tv_image_letter.setVisibility(View.GONE);
         } else {
-            drawText(holder, letter, holder.lookupKey.hashCode());
+            randomColorMaker.applyLetterAvatar(holder.iv_contact_pic, holder.tv_image_letter, letter, holder.lookupKey.hashCode(), activity.colorful);
         }
 
     }
@@ -174,14 +230,19 @@ public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapt
         return cursor.getCount();
     }
 
-    private void drawText(ViewHolder viewHolder, String chr, int hash) {
-        viewHolder.tv_image_letter.setVisibility(View.VISIBLE);
-        viewHolder.tv_image_letter.setText(chr);
-        Glide.with(viewHolder.iv_contact_pic).load(
-                activity.colorful ?
-                        new ColorDrawable(randomColorMaker.generateColor(hash)) :
-                        letterContactBackground
-        ).into(viewHolder.iv_contact_pic);
+    @NonNull
+    @Override
+    public List<ContactPhoto> getPreloadItems(int position) {
+        if (!cursor.moveToPosition(position))
+            return Collections.emptyList();
+        final ContactPhoto contactPhoto = ContactPhoto.of(cursor.getString(lookupKeyIndex), cursor.getLong(photoIdIndex));
+        return contactPhoto == null ? Collections.emptyList() : Collections.singletonList(contactPhoto);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull ContactPhoto contactPhoto) {
+        return Glide.with(activity).load(contactPhoto).apply(ContactPhoto.REQUEST_OPTIONS);
     }
 
     class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
@@ -210,7 +271,7 @@ public class ContactRecyclerViewAdapter extends ModularRecyclerView.ModularAdapt
 
             this.tv_letter.setOnClickListener((v) -> {
                 final LetterChooserDialog letterChooserDialog =
-                        new LetterChooserDialog(activity, letterToPosition,
+                        new LetterChooserDialog(activity, getLetterToPosition(),
                                 (position -> {
                                     ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(position, 0);
                                 }
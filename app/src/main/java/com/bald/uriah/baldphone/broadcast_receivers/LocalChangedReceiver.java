@@ -19,15 +19,35 @@ package com.bald.uriah.baldphone.broadcast_receivers;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.bald.uriah.baldphone.databases.apps.AppsDatabaseHelper;
+import com.bald.uriah.baldphone.utils.S;
 
 /**
  * Broadcast receiver to know when local changes.
+ * the labels in the Apps Database are in the language of the old locale, so they are loaded again,
+ * see {@link AppsDatabaseHelper#syncDB(Context)}
  */
 public class LocalChangedReceiver extends BroadcastReceiver {
+    private static final String TAG = LocalChangedReceiver.class.getSimpleName();
+
     @Override
     public void onReceive(Context context, Intent intent) {
         if (intent.getAction() != null && intent.getAction().equals(Intent.ACTION_LOCALE_CHANGED)) {
-            //caches to clear when local changes:
+            final Context appContext = context.getApplicationContext();
+            final PendingResult pendingResult = goAsync();
+            AsyncTask.execute(() -> {
+                try {
+                    AppsDatabaseHelper.syncDB(appContext);
+                } catch (Exception e) {
+                    Log.e(TAG, S.str(e.getMessage()));
+                    e.printStackTrace();
+                } finally {
+                    pendingResult.finish();
+                }
+            });
         }
     }
 }
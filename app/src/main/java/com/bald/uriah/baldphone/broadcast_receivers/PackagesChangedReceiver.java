@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.broadcast_receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.bald.uriah.baldphone.databases.apps.AppsDatabaseHelper;
+import com.bald.uriah.baldphone.utils.S;
+
+/**
+ * Broadcast receiver to know when packages are added, removed or changed.
+ * applies the delta of the changed package to the Apps Database, see {@link AppsDatabaseHelper#updatePackage(Context, String)}
+ * since api 26 these broadcasts are not delivered to manifest receivers, so it is also registered in {@link com.bald.uriah.baldphone.BaldPhone}
+ */
+public class PackagesChangedReceiver extends BroadcastReceiver {
+    private static final String TAG = PackagesChangedReceiver.class.getSimpleName();
+
+    public static IntentFilter intentFilter() {
+        final IntentFilter intentFilter = new IntentFilter();
+        intentFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        intentFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        intentFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        intentFilter.addDataScheme("package");
+        return intentFilter;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final Uri data = intent.getData();
+        if (data == null)
+            return;
+        // an update is a removal followed by an addition, the addition will take care of it.
+        if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction()) && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false))
+            return;
+        final String packageName = data.getSchemeSpecificPart();
+        final Context appContext = context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+        AsyncTask.execute(() -> {
+            try {
+                AppsDatabaseHelper.updatePackage(appContext, packageName);
+            } catch (Exception e) {
+                Log.e(TAG, S.str(e.getMessage()));
+                e.printStackTrace();
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+}
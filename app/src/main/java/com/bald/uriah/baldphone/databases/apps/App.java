@@ -28,7 +28,6 @@ import com.bald.uriah.baldphone.databases.home_screen_pins.HomeScreenPinHelper;
 import com.bald.uriah.baldphone.utils.S;
 import com.bald.uriah.baldphone.views.HomeScreenAppView;
 
-import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -47,8 +46,11 @@ public class App implements AppsRecyclerViewAdapter.InAppsRecyclerView, HomeScre
     @ColumnInfo(name = "flatten_component_name")
     private String flattenComponentName;
 
-    @ColumnInfo(name = "icon")
-    private byte[] icon;
+    /**
+     * hash of the icon in {@link AppIconCache}
+     */
+    @ColumnInfo(name = "icon_hash")
+    private String iconHash;
 
     @ColumnInfo(name = "label")
     private String label;
@@ -70,12 +72,12 @@ public class App implements AppsRecyclerViewAdapter.InAppsRecyclerView, HomeScre
         this.flattenComponentName = flattenComponentName;
     }
 
-    public byte[] getIcon() {
-        return icon;
+    public String getIconHash() {
+        return iconHash;
     }
 
-    public void setIcon(byte[] icon) {
-        this.icon = icon;
+    public void setIconHash(String iconHash) {
+        this.iconHash = iconHash;
     }
 
     public String getLabel() {
@@ -102,6 +104,20 @@ public class App implements AppsRecyclerViewAdapter.InAppsRecyclerView, HomeScre
         this.pinned = pinned;
     }
 
+    /**
+     * the lists of {@link AppsRecyclerViewAdapter} are diffed against the apps they show,
+     * so a change is applied to a copy which replaces the app, instead of to the app itself.
+     */
+    public App copy() {
+        final App app = new App();
+        app.id = id;
+        app.flattenComponentName = flattenComponentName;
+        app.iconHash = iconHash;
+        app.label = label;
+        app.pinned = pinned;
+        return app;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -110,15 +126,13 @@ public class App implements AppsRecyclerViewAdapter.InAppsRecyclerView, HomeScre
         return id == app.id &&
                 pinned == app.pinned &&
                 Objects.equals(flattenComponentName, app.flattenComponentName) &&
-                Arrays.equals(icon, app.icon) &&
+                Objects.equals(iconHash, app.iconHash) &&
                 Objects.equals(label, app.label);
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(id, flattenComponentName, label, pinned);
-        result = 31 * result + Arrays.hashCode(icon);
-        return result;
+        return Objects.hash(id, flattenComponentName, iconHash, label, pinned);
     }
 
     @Ignore
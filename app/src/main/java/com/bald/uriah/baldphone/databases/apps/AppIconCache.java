@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bald.uriah.baldphone.utils.S;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Content addressed on-disk cache of app icons.
+ * every icon is stored once in a file named after the hash of its bytes, and {@link App} only keeps that hash.
+ * this keeps the App rows tiny, so app list queries don't drag icon blobs through the CursorWindow.
+ */
+public class AppIconCache {
+    private static final String TAG = AppIconCache.class.getSimpleName();
+    private static final String DIR_NAME = "app_icons";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * stores the icon if it isn't stored yet.
+     *
+     * @return the hash of the icon, to be used with {@link #getFile(Context, String)}; null if it could not be stored.
+     */
+    @Nullable
+    public static String put(@NonNull Context context, @NonNull byte[] icon) {
+        final String hash = hash(icon);
+        final File file = getFile(context, hash);
+        if (file.exists())
+            return hash;
+        final File dir = getDir(context);
+        // icons are stored concurrently, and apps may share an icon - so every writer gets its own temp file
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(hash, TMP_SUFFIX, dir);
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tmp)) {
+                fileOutputStream.write(icon);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+            if (tmp != null)
+                tmp.delete();
+            return null;
+        }
+        // rename is atomic, so a reader never sees a partially written icon
+        if (!tmp.renameTo(file) && !file.exists()) {
+            tmp.delete();
+            return null;
+        }
+        return hash;
+    }
+
+    @NonNull
+    public static File getFile(@NonNull Context context, @NonNull String hash) {
+        return new File(getDir(context), hash);
+    }
+
+    /**
+     * deletes every icon which is not referenced anymore.
+     * must only be called by the writers of {@link AppsDatabaseHelper}, which never run concurrently,
+     * as an icon which was just stored is not referenced until its row is inserted.
+     *
+     * @param liveHashes the hashes which are still referenced by the Apps Database
+     */
+    public static void prune(@NonNull Context context, @NonNull Set<String> liveHashes) {
+        final File[] files = getDir(context).listFiles();
+        if (files == null)
+            return;
+        for (File file : files)
+            if (!file.getName().endsWith(TMP_SUFFIX) && !liveHashes.contains(file.getName()))
+                file.delete();
+    }
+
+    public static void clear(@NonNull Context context) {
+        prune(context, Collections.<String>emptySet());
+    }
+
+    @NonNull
+    private static File getDir(@NonNull Context context) {
+        final File dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.exists())
+            dir.mkdirs();
+        return dir;
+    }
+
+    @NonNull
+    private static String hash(@NonNull byte[] bytes) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // SHA-1 is guaranteed on every android device
+        }
+        final char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
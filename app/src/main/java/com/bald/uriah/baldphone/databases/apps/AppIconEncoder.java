@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.DisplayMetrics;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.activities.AppsActivity;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Encodes launcher icons before they are stored in {@link AppIconCache}.
+ * icons are rasterized or downscaled to the size of a cell in the apps grid of {@link AppsActivity},
+ * and not at their full density, and then compressed with {@link #FORMAT}.
+ * WEBP with quality 100 is lossless only since api 29, where it is much faster to encode and smaller than PNG -
+ * below that it is lossy at any quality, so PNG is used there.
+ * raw ARGB is not offered - Glide decodes the cached files directly, and raw pixels are bigger on disk.
+ */
+public class AppIconEncoder {
+    public static final int FORMAT_PNG = 0;
+    public static final int FORMAT_WEBP = 1;
+    @Format
+    public static final int FORMAT = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? FORMAT_WEBP : FORMAT_PNG;
+    private static final int QUALITY = 100;
+    private static final int INITIAL_BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * output buffers are reused between icons, one per encoding thread.
+     */
+    private static final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        }
+    };
+
+    private final int iconSize;
+    @Format
+    private final int format;
+
+    public AppIconEncoder(int iconSize, @Format int format) {
+        this.iconSize = iconSize;
+        this.format = format;
+    }
+
+    public static AppIconEncoder newInstance(@NonNull Context context) {
+        return new AppIconEncoder(getGridCellSize(context), FORMAT);
+    }
+
+    /**
+     * @return the biggest width of a cell in the apps grid, in either orientation
+     */
+    public static int getGridCellSize(@NonNull Context context) {
+        final DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+        final int shortSide = Math.min(displayMetrics.widthPixels, displayMetrics.heightPixels);
+        final int longSide = Math.max(displayMetrics.widthPixels, displayMetrics.heightPixels);
+        return Math.max(shortSide / AppsActivity.APPS_IN_A_ROW_PORTRAIT, longSide / AppsActivity.APPS_IN_A_ROW_LANDSCAPE);
+    }
+
+    @NonNull
+    public byte[] encode(@NonNull Drawable drawable) {
+        if (drawable instanceof BitmapDrawable)
+            return encode(((BitmapDrawable) drawable).getBitmap());
+        // adaptive and vector icons are drawn straight at the cell size
+        final int width = drawable.getIntrinsicWidth() > 0 ? Math.min(drawable.getIntrinsicWidth(), iconSize) : iconSize;
+        final int height = drawable.getIntrinsicHeight() > 0 ? Math.min(drawable.getIntrinsicHeight(), iconSize) : iconSize;
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        final byte[] bytes = compress(bitmap);
+        bitmap.recycle();
+        return bytes;
+    }
+
+    @NonNull
+    public byte[] encode(@NonNull Bitmap bitmap) {
+        final int biggerSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (biggerSide <= iconSize)
+            return compress(bitmap);
+        final float scale = iconSize / (float) biggerSide;
+        final Bitmap scaled = Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)), Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        final byte[] bytes = compress(scaled);
+        scaled.recycle();
+        return bytes;
+    }
+
+    @NonNull
+    private byte[] compress(@NonNull Bitmap bitmap) {
+        final ByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
+        bitmap.compress(format == FORMAT_WEBP ? Bitmap.CompressFormat.WEBP : Bitmap.CompressFormat.PNG, QUALITY, buffer);
+        return buffer.toByteArray();
+    }
+
+    @IntDef({FORMAT_PNG, FORMAT_WEBP})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Format {
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ByteBufferUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lets Glide load an {@link App} directly - <code>Glide.with(view).load(app)</code>.
+ * the key of every load is the content hash of the icon, so Glide's byte bounded LRU memory cache and its disk cache
+ * hold every decoded icon once, decoding happens on Glide's threads and loads are cancelled with their view.
+ */
+public class AppIconModelLoader implements ModelLoader<App, ByteBuffer> {
+    private final Context context;
+
+    private AppIconModelLoader(Context context) {
+        this.context = context;
+    }
+
+    @Nullable
+    @Override
+    public LoadData<ByteBuffer> buildLoadData(@NonNull App app, int width, int height, @NonNull Options options) {
+        final String iconHash = app.getIconHash();
+        return new LoadData<>(new ObjectKey(iconHash == null ? app.getFlattenComponentName() : iconHash), new AppIconFetcher(context, iconHash));
+    }
+
+    @Override
+    public boolean handles(@NonNull App app) {
+        return true;
+    }
+
+    private static class AppIconFetcher implements DataFetcher<ByteBuffer> {
+        private final Context context;
+        @Nullable
+        private final String iconHash;
+
+        AppIconFetcher(Context context, @Nullable String iconHash) {
+            this.context = context;
+            this.iconHash = iconHash;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super ByteBuffer> callback) {
+            if (iconHash == null) {
+                callback.onLoadFailed(new FileNotFoundException("app has no icon"));
+                return;
+            }
+            final File file = AppIconCache.getFile(context, iconHash);
+            try {
+                callback.onDataReady(ByteBufferUtil.fromFile(file));
+            } catch (IOException e) {
+                callback.onLoadFailed(e);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<ByteBuffer> getDataClass() {
+            return ByteBuffer.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<App, ByteBuffer> {
+        private final Context context;
+
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<App, ByteBuffer> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new AppIconModelLoader(context);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -16,13 +16,19 @@
 
 package com.bald.uriah.baldphone.databases.apps;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {App.class}, version = 1, exportSchema = false)
+@Database(entities = {App.class}, version = 2, exportSchema = false)
 public abstract class AppsDatabase extends RoomDatabase {
     private static final Object LOCK = new Object();
     private static AppsDatabase appsDatabase = null;
@@ -31,10 +37,44 @@ public abstract class AppsDatabase extends RoomDatabase {
         synchronized (LOCK) {
             if (appsDatabase == null)
                 appsDatabase = Room.databaseBuilder(context.getApplicationContext(),
-                        AppsDatabase.class, "applications").allowMainThreadQueries().build();
+                        AppsDatabase.class, "applications")
+                        .addMigrations(migration1To2(context.getApplicationContext()))
+                        .allowMainThreadQueries()
+                        .build();
             return appsDatabase;
         }
     }
 
+    /**
+     * Moves the icon blobs out of the App rows into {@link AppIconCache}, keeping only their hash.
+     * rows are read one by one, so a large catalog never has to fit in a single CursorWindow.
+     */
+    private static Migration migration1To2(final Context context) {
+        return new Migration(1, 2) {
+            @Override
+            public void migrate(@NonNull SupportSQLiteDatabase database) {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `App_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `flatten_component_name` TEXT, `icon_hash` TEXT, `label` TEXT, `pinned` INTEGER NOT NULL)");
+                database.execSQL("INSERT INTO `App_new` (`id`, `flatten_component_name`, `label`, `pinned`) SELECT `id`, `flatten_component_name`, `label`, `pinned` FROM `App`");
+                final int[] ids;
+                try (Cursor cursor = database.query("SELECT `id` FROM `App` WHERE `icon` IS NOT NULL")) {
+                    ids = new int[cursor.getCount()];
+                    for (int i = 0; cursor.moveToNext(); i++)
+                        ids[i] = cursor.getInt(0);
+                }
+                final ContentValues contentValues = new ContentValues(1);
+                for (int id : ids) {
+                    try (Cursor cursor = database.query("SELECT `icon` FROM `App` WHERE `id` = ?", new Object[]{id})) {
+                        if (cursor.moveToFirst()) {
+                            contentValues.put("icon_hash", AppIconCache.put(context, cursor.getBlob(0)));
+                            database.update("App_new", SQLiteDatabase.CONFLICT_NONE, contentValues, "`id` = ?", new Object[]{id});
+                        }
+                    }
+                }
+                database.execSQL("DROP TABLE `App`");
+                database.execSQL("ALTER TABLE `App_new` RENAME TO `App`");
+            }
+        };
+    }
+
     public abstract AppsDatabaseDao appsDatabaseDao();
 }
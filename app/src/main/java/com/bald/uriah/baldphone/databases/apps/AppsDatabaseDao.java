@@ -29,9 +29,6 @@ public interface AppsDatabaseDao {
     @Query("SELECT * FROM App")
     List<App> getAll();
 
-    @Query("SELECT * FROM App WHERE label LIKE :filter")
-    List<App> getAllLike(String filter);
-
     @Query("SELECT * FROM App ORDER BY LOWER(label)")
     List<App> getAllOrderedByABC();
 
@@ -41,6 +38,21 @@ public interface AppsDatabaseDao {
     @Query("UPDATE App SET pinned=:pinned WHERE id = :id")
     void update(int id, boolean pinned);
 
+    @Query("SELECT flatten_component_name FROM App")
+    List<String> getAllFlattenComponentNames();
+
+    @Query("SELECT flatten_component_name FROM App WHERE substr(flatten_component_name, 1, length(:packagePrefix)) = :packagePrefix")
+    List<String> getFlattenComponentNamesOfPackage(String packagePrefix);
+
+    @Query("UPDATE App SET label=:label, icon_hash=:iconHash WHERE flatten_component_name = :flattenComponentName")
+    void updateLabelAndIcon(String flattenComponentName, String label, String iconHash);
+
+    @Query("UPDATE App SET label=:label WHERE flatten_component_name = :flattenComponentName")
+    void updateLabel(String flattenComponentName, String label);
+
+    @Query("SELECT DISTINCT icon_hash FROM App WHERE icon_hash IS NOT NULL")
+    List<String> getAllIconHashes();
+
     @Query("SELECT * FROM App WHERE flatten_component_name LIKE :flattenComponentName LIMIT 1")
     App findByFlattenComponentName(String flattenComponentName);
 
@@ -56,6 +68,9 @@ public interface AppsDatabaseDao {
     @Query("DELETE FROM App WHERE id IN (:appIds)")
     void deleteByIds(int... appIds);
 
+    @Query("DELETE FROM App WHERE flatten_component_name IN (:flattenComponentNames)")
+    void deleteByFlattenComponentNames(List<String> flattenComponentNames);
+
     @Query("DELETE FROM App")
     void deleteAll();
 
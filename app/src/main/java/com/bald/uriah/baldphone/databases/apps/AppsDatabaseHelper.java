@@ -19,14 +19,19 @@ package com.bald.uriah.baldphone.databases.apps;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
+import android.content.pm.ChangedPackages;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.provider.Settings;
 import android.util.Log;
 import android.widget.ImageView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.bald.uriah.baldphone.BuildConfig;
 import com.bald.uriah.baldphone.R;
 import com.bald.uriah.baldphone.activities.AppsActivity;
@@ -38,21 +43,34 @@ import com.bald.uriah.baldphone.activities.contacts.ContactsActivity;
 import com.bald.uriah.baldphone.activities.media.PhotosActivity;
 import com.bald.uriah.baldphone.activities.media.VideosActivity;
 import com.bald.uriah.baldphone.activities.pills.PillsActivity;
+import com.bald.uriah.baldphone.broadcast_receivers.PackagesChangedReceiver;
+import com.bald.uriah.baldphone.utils.BPrefs;
+import com.bald.uriah.baldphone.utils.D;
 import com.bald.uriah.baldphone.utils.S;
 import com.bumptech.glide.Glide;
 
 import org.acra.ACRA;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * static class of useful methods when using the Apps Database
  */
 public class AppsDatabaseHelper {
     private static final String TAG = AppsDatabaseHelper.class.getSimpleName();
+    private static final int INSERT_BATCH_SIZE = 16;
 
     public static final String baldComponentNameBeginning = BuildConfig.APPLICATION_ID + "/";
     public static Map<String, Integer> baldComponentNames = new HashMap<>(9);
@@ -90,80 +108,261 @@ public class AppsDatabaseHelper {
         return componentNames;
     }
 
+    public static void updateDB(Context context) {
+        updateDB(context, null);
+    }
+
     /**
      * Updates Apps Database - should never throw any exception
+     * the database is reconciled in a single pass - all of the component names are loaded once into a hash set,
+     * and the add and remove sets are computed against the installed apps.
+     * stale apps are deleted in one transaction, new apps are extracted in parallel and inserted in batches.
+     *
+     * <p>
+     * every writer of the Apps Database is synchronized on this class, as icons are stored in {@link AppIconCache}
+     * before their rows are inserted - pruning the cache while another writer inserts would delete the icons of its new rows.
+     *
+     * @param progressListener notified after every inserted batch, so partial results can be shown
      */
-    public static void updateDB(Context context) {
-
+    public static synchronized void updateDB(Context context, @Nullable ProgressListener progressListener) {
         final AppsDatabase appsDatabase = AppsDatabase.getInstance(context);
-        final int dbAmountBefore = appsDatabase.appsDatabaseDao().getNumberOfRows();
-        final List<String> addList = new ArrayList<>();
-        final List<String> realApps = getInstalledAppsFlattenComponentNames(context);
-
-        int realAppsInDbCount = 0;
+        final AppsDatabaseDao appsDatabaseDao = appsDatabase.appsDatabaseDao();
+        final Reconciliation reconciliation = reconcile(appsDatabaseDao.getAllFlattenComponentNames(), getInstalledAppsFlattenComponentNames(context));
+        final List<String> addList = reconciliation.addList;
+        final List<String> removeList = reconciliation.removeList;
 
-        for (String componentName : realApps) {
-            if (appsDatabase.appsDatabaseDao().findByFlattenComponentName(componentName) == null) {
-                addList.add(componentName);
-            } else {
-                ++realAppsInDbCount;
-            }
+        if (removeList.size() > 0) {
+            appsDatabase.runInTransaction(() -> {
+                // sqlite limits the number of bound parameters, so deletions are applied in chunks
+                for (int i = 0; i < removeList.size(); i += D.SQLITE_MAX_VARIABLES)
+                    appsDatabaseDao.deleteByFlattenComponentNames(removeList.subList(i, Math.min(i + D.SQLITE_MAX_VARIABLES, removeList.size())));
+            });
+            AppIconCache.prune(context, new HashSet<>(appsDatabaseDao.getAllIconHashes()));
         }
 
-        if (addList.size() > 0) {
-            final PackageManager packageManager = context.getPackageManager();
-            final App[] appsToAdd = new App[addList.size()];
-            int counter = 0;
-            for (String componentName : addList) {
-                try {
-                    final App app = new App();
-                    appsToAdd[counter++] = app;
-                    app.setFlattenComponentName(componentName);
+        if (addList.size() > 0)
+            insertApps(context, appsDatabaseDao, addList, progressListener);
+    }
+
+    /**
+     * computes which component names should be added to and removed from the Apps Database in a single pass over each side.
+     */
+    @NonNull
+    static Reconciliation reconcile(@NonNull Collection<String> dbComponentNames, @NonNull Collection<String> installedComponentNames) {
+        final Set<String> dbApps = new HashSet<>(dbComponentNames);
+        final Set<String> realApps = new HashSet<>(installedComponentNames);
+        final Reconciliation reconciliation = new Reconciliation();
+        for (String componentName : realApps)
+            if (!dbApps.contains(componentName))
+                reconciliation.addList.add(componentName);
+        for (String componentName : dbApps)
+            if (!realApps.contains(componentName))
+                reconciliation.removeList.add(componentName);
+        return reconciliation;
+    }
+
+    /**
+     * loading labels and icons means a binder call and a rasterization per app,
+     * so it runs on a pool sized to the number of cores, and the results are inserted in batches as they come.
+     */
+    private static void insertApps(Context context, AppsDatabaseDao appsDatabaseDao, List<String> componentNames, @Nullable ProgressListener progressListener) {
+        final PackageManager packageManager = context.getPackageManager();
+        final AppIconEncoder appIconEncoder = AppIconEncoder.newInstance(context);
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(Runtime.getRuntime().availableProcessors(), componentNames.size()));
+        final CompletionService<App> completionService = new ExecutorCompletionService<>(executorService);
+        try {
+            for (String componentName : componentNames)
+                completionService.submit(() -> {
                     final ActivityInfo activityInfo =
                             packageManager.getActivityInfo(ComponentName.unflattenFromString(componentName), PackageManager.MATCH_DEFAULT_ONLY);
-                    app.setLabel(String.valueOf(activityInfo.loadLabel(packageManager)));
-                    final Drawable drawable = activityInfo.loadIcon(packageManager);
-                    if (drawable instanceof BitmapDrawable)
-                        app.setIcon(S.bitmapToByteArray(((BitmapDrawable) drawable).getBitmap()));
-                    else
-                        app.setIcon(S.bitmapToByteArray(S.getBitmapFromDrawable(drawable)));
-
-                } catch (PackageManager.NameNotFoundException e) {
-                    Log.e(TAG, e.getMessage());
+                    return createApp(context, packageManager, appIconEncoder, activityInfo, componentName);
+                });
+
+            final List<App> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (int done = 1; done <= componentNames.size(); done++) {
+                try {
+                    batch.add(completionService.take().get());
+                } catch (ExecutionException e) {
+                    Log.e(TAG, S.str(e.getCause()));
                     e.printStackTrace();
-                    ACRA.getErrorReporter().handleSilentException(new RuntimeException("cannot happen! new app is not found", e));
+                    ACRA.getErrorReporter().handleSilentException(new RuntimeException("cannot happen! new app is not found", e.getCause()));
+                }
+                if (batch.size() == INSERT_BATCH_SIZE || done == componentNames.size()) {
+                    if (batch.size() > 0)
+                        appsDatabaseDao.insertAll(batch);
+                    batch.clear();
+                    if (progressListener != null)
+                        progressListener.onProgress(done, componentNames.size());
                 }
-
             }
-            appsDatabase.appsDatabaseDao().insertAll(appsToAdd);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
         }
+    }
 
-        if (dbAmountBefore > realAppsInDbCount) {
-            final int howMuchToGo = dbAmountBefore - realAppsInDbCount;
-            final int[] idsToDelete = new int[howMuchToGo];
+    /**
+     * Applies the changes of a single package to the Apps Database - inserts its new launcher activities,
+     * deletes the ones which are gone and relabels and re-icons the ones which are still there.
+     * a removed package simply has no launcher activities, so all of its rows are deleted.
+     */
+    public static synchronized void updatePackage(Context context, String packageName) {
+        if (packageName.equals(BuildConfig.APPLICATION_ID))
+            return;
+        final AppsDatabase appsDatabase = AppsDatabase.getInstance(context);
+        final AppsDatabaseDao appsDatabaseDao = appsDatabase.appsDatabaseDao();
+        final PackageManager packageManager = context.getPackageManager();
+        final Set<String> dbApps = new HashSet<>(appsDatabaseDao.getFlattenComponentNamesOfPackage(packageName + "/"));
+        final Intent intent = new Intent(Intent.ACTION_MAIN, null).addCategory(Intent.CATEGORY_LAUNCHER).setPackage(packageName);
+        final List<ResolveInfo> resolveInfos = packageManager.queryIntentActivities(intent, 0);
 
-            int idsToDeleteCounter = 0;
-            boolean shouldDelete;
+        final AppIconEncoder appIconEncoder = AppIconEncoder.newInstance(context);
+        final List<App> appsToAdd = new ArrayList<>();
+        final List<App> appsToRefresh = new ArrayList<>();
+        ActivityInfo activityInfo;
+        String componentName;
+        for (int i = 0; i < resolveInfos.size(); i++) {
+            activityInfo = resolveInfos.get(i).activityInfo;
+            componentName = new ComponentName(activityInfo.applicationInfo.packageName, activityInfo.name).flattenToString();
+            if (dbApps.remove(componentName))
+                appsToRefresh.add(createApp(context, packageManager, appIconEncoder, activityInfo, componentName));
+            else
+                appsToAdd.add(createApp(context, packageManager, appIconEncoder, activityInfo, componentName));
+        }
+        final List<String> removeList = new ArrayList<>(dbApps);
 
-            for (App app : appsDatabase.appsDatabaseDao().getAll()) {
-                shouldDelete = true;
-                for (String componentName : realApps)
-                    if (app.getFlattenComponentName().equals(componentName)) {
-                        shouldDelete = false;
-                        break;
-                    }
-                if (shouldDelete)
-                    idsToDelete[idsToDeleteCounter++] = app.getId();
+        appsDatabase.runInTransaction(() -> {
+            if (removeList.size() > 0)
+                appsDatabaseDao.deleteByFlattenComponentNames(removeList);
+            if (appsToAdd.size() > 0)
+                appsDatabaseDao.insertAll(appsToAdd);
+            for (App app : appsToRefresh)
+                appsDatabaseDao.updateLabelAndIcon(app.getFlattenComponentName(), app.getLabel(), app.getIconHash());
+        });
+        if (removeList.size() > 0 || appsToRefresh.size() > 0)
+            AppIconCache.prune(context, new HashSet<>(appsDatabaseDao.getAllIconHashes()));
+    }
 
+    public static void syncDB(Context context) {
+        syncDB(context, null);
+    }
+
+    /**
+     * deletes every app and icon, the next {@link #syncDB(Context)} runs the full scan again.
+     */
+    public static synchronized void clearDB(Context context) {
+        AppsDatabase.getInstance(context).appsDatabaseDao().deleteAll();
+        AppIconCache.clear(context);
+        BPrefs.get(context).edit().remove(BPrefs.APPS_FINGERPRINT_KEY).apply();
+    }
+
+    /**
+     * Runs the full scan of {@link #updateDB(Context)} only when the apk version or the boot changed.
+     * between those, the database is kept fresh per package by {@link PackagesChangedReceiver}.
+     * on api 26+ packages which changed while the process was dead are caught up via {@link PackageManager#getChangedPackages(int)}.
+     * when the locale changed, the labels of the apps which are already in the database are loaded again, see {@link #relabelApps(Context)}.
+     */
+    public static synchronized void syncDB(Context context, @Nullable ProgressListener progressListener) {
+        final SharedPreferences sharedPreferences = BPrefs.get(context);
+        final PackageManager packageManager = context.getPackageManager();
+        final String locale = Locale.getDefault().toString();
+        if (!locale.equals(sharedPreferences.getString(BPrefs.APPS_LOCALE_KEY, null))) {
+            relabelApps(context);
+            sharedPreferences.edit().putString(BPrefs.APPS_LOCALE_KEY, locale).apply();
+        }
+        final String fingerprint = getFingerprint(context);
+        if (!fingerprint.equals(sharedPreferences.getString(BPrefs.APPS_FINGERPRINT_KEY, null))) {
+            updateDB(context, progressListener);
+            final SharedPreferences.Editor editor = sharedPreferences.edit().putString(BPrefs.APPS_FINGERPRINT_KEY, fingerprint);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                final ChangedPackages changedPackages = packageManager.getChangedPackages(0);
+                editor.putInt(BPrefs.APPS_PACKAGES_SEQUENCE_KEY, changedPackages == null ? 0 : changedPackages.getSequenceNumber());
+            }
+            editor.apply();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            final ChangedPackages changedPackages = packageManager.getChangedPackages(sharedPreferences.getInt(BPrefs.APPS_PACKAGES_SEQUENCE_KEY, 0));
+            if (changedPackages != null) {
+                for (String packageName : changedPackages.getPackageNames())
+                    updatePackage(context, packageName);
+                sharedPreferences.edit().putInt(BPrefs.APPS_PACKAGES_SEQUENCE_KEY, changedPackages.getSequenceNumber()).apply();
             }
-            appsDatabase.appsDatabaseDao().deleteByIds(idsToDelete);
         }
     }
 
+    /**
+     * labels are stored in the language of the locale they were loaded in,
+     * so after the locale changed the label of every app is loaded again and the changed ones are updated in one transaction.
+     */
+    private static void relabelApps(Context context) {
+        final AppsDatabase appsDatabase = AppsDatabase.getInstance(context);
+        final AppsDatabaseDao appsDatabaseDao = appsDatabase.appsDatabaseDao();
+        final PackageManager packageManager = context.getPackageManager();
+        final List<App> relabeledApps = new ArrayList<>();
+        for (App app : appsDatabaseDao.getAll()) {
+            final String label;
+            try {
+                label = String.valueOf(packageManager.getActivityInfo(ComponentName.unflattenFromString(app.getFlattenComponentName()), PackageManager.MATCH_DEFAULT_ONLY).loadLabel(packageManager));
+            } catch (PackageManager.NameNotFoundException e) {
+                // uninstalled, the next full scan will delete it
+                continue;
+            }
+            if (!label.equals(app.getLabel())) {
+                app.setLabel(label);
+                relabeledApps.add(app);
+            }
+        }
+        if (relabeledApps.size() > 0)
+            appsDatabase.runInTransaction(() -> {
+                for (App app : relabeledApps)
+                    appsDatabaseDao.updateLabel(app.getFlattenComponentName(), app.getLabel());
+            });
+    }
+
+    /**
+     * the sequence number of {@link PackageManager#getChangedPackages(int)} is reset on boot,
+     * so on api 26+ the boot count is a part of the fingerprint.
+     * the locale is not a part of it, since a new locale only needs new labels and not a full scan.
+     */
+    private static String getFingerprint(Context context) {
+        final StringBuilder fingerprint = new StringBuilder()
+                .append(BuildConfig.VERSION_CODE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            fingerprint.append('|').append(Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, 0));
+        return fingerprint.toString();
+    }
+
+    private static App createApp(Context context, PackageManager packageManager, AppIconEncoder appIconEncoder, ActivityInfo activityInfo, String componentName) {
+        final App app = new App();
+        app.setFlattenComponentName(componentName);
+        app.setLabel(String.valueOf(activityInfo.loadLabel(packageManager)));
+        app.setIconHash(AppIconCache.put(context, appIconEncoder.encode(activityInfo.loadIcon(packageManager))));
+        return app;
+    }
+
+    /**
+     * see {@link AppIconModelLoader}
+     */
     public static void loadPic(App app, ImageView imageView) {
-        if (app.getFlattenComponentName().startsWith(baldComponentNameBeginning))
+        if (app.getFlattenComponentName().startsWith(baldComponentNameBeginning)) {
+            Glide.with(imageView).clear(imageView); // so a pending load of a recycled view won't override the resource
             imageView.setImageResource(AppsDatabaseHelper.baldComponentNames.get(app.getFlattenComponentName()));
-        else
-            Glide.with(imageView).load(S.byteArrayToBitmap(app.getIcon())).into(imageView);
+        } else
+            Glide.with(imageView).load(app).into(imageView);
+    }
+
+    static class Reconciliation {
+        final List<String> addList = new ArrayList<>();
+        final List<String> removeList = new ArrayList<>();
+    }
+
+    public interface ProgressListener {
+        /**
+         * called on the updating thread
+         *
+         * @param done  how many of the new apps were handled
+         * @param total how many new apps there are
+         */
+        void onProgress(int done, int total);
     }
 }
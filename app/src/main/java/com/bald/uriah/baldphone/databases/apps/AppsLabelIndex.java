@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In memory index over the labels of the apps, for filtering while typing.
+ * labels are normalized with {@link S#normalize(CharSequence)},
+ * and every substring of up to {@link #MAX_GRAM} chars points at the apps which contain it.
+ * a query of up to {@link #MAX_GRAM} chars is a single lookup, a longer query is checked only against
+ * the apps of its rarest trigram.
+ * built once from the apps list and updated incrementally with {@link #add(App)}, {@link #replace(App)} and {@link #remove(App)}.
+ */
+public class AppsLabelIndex {
+    private static final int MAX_GRAM = 3;
+
+    /**
+     * ordinal to app, null once removed
+     */
+    private final List<App> apps;
+    private final List<String> labels;
+    private final Map<String, IntList> grams = new HashMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private int removedCount;
+    private boolean ordered = true;
+
+    /**
+     * @param appList should be ordered by label, queries keep its order
+     */
+    public AppsLabelIndex(@NonNull List<App> appList) {
+        apps = new ArrayList<>(appList.size());
+        labels = new ArrayList<>(appList.size());
+        for (App app : appList)
+            add(app);
+        ordered = true;
+    }
+
+    public void add(@NonNull App app) {
+        remove(app);
+        final int ordinal = apps.size();
+        final String label = S.normalize(app.getLabel() == null ? "" : app.getLabel());
+        apps.add(app);
+        labels.add(label);
+        ordinals.put(app.getFlattenComponentName(), ordinal);
+        for (int n = 1; n <= MAX_GRAM; n++)
+            for (int i = 0; i + n <= label.length(); i++) {
+                final String gram = label.substring(i, i + n);
+                IntList postings = grams.get(gram);
+                if (postings == null) {
+                    postings = new IntList();
+                    grams.put(gram, postings);
+                }
+                // a label can contain the same gram twice, postings are ascending so checking the last is enough
+                if (postings.size == 0 || postings.get(postings.size - 1) != ordinal)
+                    postings.add(ordinal);
+            }
+        ordered = false;
+    }
+
+    /**
+     * replaces the app with the same component name, keeping its place in the order if its label did not change
+     */
+    public void replace(@NonNull App app) {
+        final Integer ordinal = ordinals.get(app.getFlattenComponentName());
+        if (ordinal != null && Objects.equals(apps.get(ordinal).getLabel(), app.getLabel()))
+            apps.set(ordinal, app);
+        else
+            add(app);
+    }
+
+    public void remove(@NonNull App app) {
+        final Integer ordinal = ordinals.remove(app.getFlattenComponentName());
+        if (ordinal == null)
+            return;
+        apps.set(ordinal, null);
+        removedCount++;
+        if (removedCount > apps.size() / 2)
+            rebuild();
+    }
+
+    /**
+     * @return the apps whose label contains the query, in the order of the index
+     */
+    @NonNull
+    public List<App> query(@NonNull CharSequence query) {
+        final String normalizedQuery = S.normalize(query);
+        final List<App> ret = new ArrayList<>();
+        if (normalizedQuery.isEmpty()) {
+            for (App app : apps)
+                if (app != null)
+                    ret.add(app);
+        } else if (normalizedQuery.length() <= MAX_GRAM) {
+            final IntList postings = grams.get(normalizedQuery);
+            if (postings != null)
+                for (int i = 0; i < postings.size; i++) {
+                    final App app = apps.get(postings.get(i));
+                    if (app != null)
+                        ret.add(app);
+                }
+        } else {
+            IntList rarest = null;
+            for (int i = 0; i + MAX_GRAM <= normalizedQuery.length(); i++) {
+                final IntList postings = grams.get(normalizedQuery.substring(i, i + MAX_GRAM));
+                if (postings == null)
+                    return ret;
+                if (rarest == null || postings.size < rarest.size)
+                    rarest = postings;
+            }
+            for (int i = 0; i < rarest.size; i++) {
+                final int ordinal = rarest.get(i);
+                final App app = apps.get(ordinal);
+                if (app != null && labels.get(ordinal).contains(normalizedQuery))
+                    ret.add(app);
+            }
+        }
+        if (!ordered)
+            Collections.sort(ret, (o1, o2) -> String.valueOf(o1.getLabel()).compareToIgnoreCase(String.valueOf(o2.getLabel())));
+        return ret;
+    }
+
+    private void rebuild() {
+        final List<App> liveApps = new ArrayList<>(apps.size() - removedCount);
+        for (App app : apps)
+            if (app != null)
+                liveApps.add(app);
+        final boolean wasOrdered = ordered;
+        apps.clear();
+        labels.clear();
+        grams.clear();
+        ordinals.clear();
+        removedCount = 0;
+        for (App app : liveApps)
+            add(app);
+        ordered = wasOrdered;
+    }
+
+    /**
+     * growable int array, so postings don't box every ordinal
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+    }
+}
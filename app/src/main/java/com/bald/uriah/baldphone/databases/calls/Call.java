@@ -18,18 +18,18 @@ package com.bald.uriah.baldphone.databases.calls;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.net.Uri;
 import android.provider.CallLog;
-import android.provider.ContactsContract;
 
 import androidx.annotation.Nullable;
 
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.databases.contacts.MiniContact;
 
 public class Call {
     private static final String TAG = Call.class.getSimpleName();
     public static final String[] PRIVATE_NUMBERS = {"-1", "-2"};
     static final String[] PROJECTION = new String[]{
+            CallLog.Calls._ID,
             CallLog.Calls.NUMBER,
             CallLog.Calls.DURATION,
             CallLog.Calls.DATE,
@@ -38,14 +38,19 @@ public class Call {
 //            CallLog.Calls.NEW, Currently it's commented because new calls are not marked in any way
 //            CallLog.Calls.IS_READ,
     };
+    public final long id;
     public final String phoneNumber;
     public final int lengthInSeconds;
     public final long dateTime;
     public final int callType;
     public final String contactUri;
 //    public final boolean neW; Currently it's commented because new calls are not marked in any way
+    @Nullable
+    private MiniContact miniContact;
+    private boolean contactResolved;
 
-    public Call(String phoneNumber, int lengthInSeconds, long dateTime, int callType, String contactUri/*, boolean neW*/) {
+    public Call(long id, String phoneNumber, int lengthInSeconds, long dateTime, int callType, String contactUri/*, boolean neW*/) {
+        this.id = id;
         this.phoneNumber = phoneNumber;
         this.lengthInSeconds = lengthInSeconds;
         this.dateTime = dateTime;
@@ -54,55 +59,51 @@ public class Call {
 //        this.neW = neW;
     }
 
-    public Call(final Cursor cursor) {
+    /**
+     * @param columns the indexes of {@link #PROJECTION} in the cursor, from {@link #columnIndexes(Cursor)}
+     */
+    Call(final Cursor cursor, final int[] columns) {
         this(
-                cursor.getString(cursor.getColumnIndex(CallLog.Calls.NUMBER)),
-                cursor.getInt(cursor.getColumnIndex(CallLog.Calls.DURATION)),
-                cursor.getLong(cursor.getColumnIndex(CallLog.Calls.DATE)),
-                cursor.getInt(cursor.getColumnIndex(CallLog.Calls.TYPE)),
-                cursor.getString(cursor.getColumnIndex(CallLog.Calls.CACHED_LOOKUP_URI))
+                cursor.getLong(columns[0]),
+                cursor.getString(columns[1]),
+                cursor.getInt(columns[2]),
+                cursor.getLong(columns[3]),
+                cursor.getInt(columns[4]),
+                cursor.getString(columns[5])
 //                ,(cursor.getInt(cursor.getColumnIndex(CallLog.Calls.NEW)) == 1) && (cursor.getInt(cursor.getColumnIndex(CallLog.Calls.IS_READ)) == 0)
         );
     }
 
+    /**
+     * resolves the columns of {@link #PROJECTION} once per cursor, instead of once per row
+     */
+    static int[] columnIndexes(final Cursor cursor) {
+        final int[] columns = new int[PROJECTION.length];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = cursor.getColumnIndex(PROJECTION[i]);
+        return columns;
+    }
+
+    /**
+     * @return the contact which was attached by {@link CallLogsHelper#resolveContacts}, or resolves it if none was attached
+     */
     @Nullable
     public MiniContact getMiniContact(Context context) {
-        if (isPrivate())
-            return null;
-        Cursor cursor = null;
-        try {
-            if (contactUri != null)
-                cursor = context.getContentResolver().query(
-                        Uri.parse(contactUri),
-                        MiniContact.PROJECTION,
-                        null,
-                        null,
-                        null);
-            if (cursor == null || cursor.getCount() < 1) {
-                if (phoneNumber != null)
-                    cursor = context.getContentResolver().query(
-                            Uri.withAppendedPath(ContactsContract.CommonDataKinds.Phone.CONTENT_FILTER_URI, Uri.encode(phoneNumber)),
-                            MiniContact.PROJECTION,
-                            null,
-                            null,
-                            null);
-            }
-            if (cursor == null || cursor.getCount() < 1) {
-                return null;
+        if (!contactResolved) {
+            if (isPrivate()) {
+                setMiniContact(null);
+            } else {
+                final ContactsDirectory contactsDirectory = ContactsDirectory.getInstance(context);
+                final MiniContact miniContact = contactsDirectory.getByLookupUri(contactUri);
+                setMiniContact(miniContact != null ? miniContact : contactsDirectory.getByNumber(phoneNumber));
             }
-            cursor.moveToFirst();
-            return new MiniContact(
-                    cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY)),
-                    cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME)),
-                    cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI)),
-                    cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts._ID)),
-                    cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts.STARRED)) == 1
-            );
-        } finally {
-            if (cursor != null)
-                cursor.close();
-
         }
+        return miniContact;
+    }
+
+    void setMiniContact(@Nullable MiniContact miniContact) {
+        this.miniContact = miniContact;
+        this.contactResolved = true;
     }
 
     public boolean isPrivate() {
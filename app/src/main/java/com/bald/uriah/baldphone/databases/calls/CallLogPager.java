@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.calls;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CallLog;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the call log page by page, newest calls first.
+ * every page continues after the last call of the previous one instead of skipping an offset,
+ * so a page deep in the call log costs the same as the first one.
+ */
+public class CallLogPager {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    // the id breaks ties between calls with the same date, so no call is skipped between pages
+    private static final String SELECTION =
+            CallLog.Calls.DATE + " < ? OR (" + CallLog.Calls.DATE + " = ? AND " + CallLog.Calls._ID + " < ?)";
+    private static final String SORT_ORDER = CallLog.Calls.DATE + " DESC, " + CallLog.Calls._ID + " DESC";
+
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final int pageSize;
+    private long lastDate = Long.MAX_VALUE, lastId = Long.MAX_VALUE;
+    private boolean hasMore = true;
+
+    public CallLogPager(ContentResolver contentResolver) {
+        this(contentResolver, DEFAULT_PAGE_SIZE);
+    }
+
+    public CallLogPager(ContentResolver contentResolver, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+        this.contentResolver = contentResolver;
+        this.pageSize = pageSize;
+        this.uri = CallLog.Calls.CONTENT_URI
+                .buildUpon()
+                .appendQueryParameter(CallLog.Calls.LIMIT_PARAM_KEY, String.valueOf(pageSize))
+                .build();
+    }
+
+    /**
+     * @return the calls after the ones which were already returned, empty when there are no more calls
+     */
+    @NonNull
+    public synchronized List<Call> nextPage() {
+        if (!hasMore)
+            return Collections.emptyList();
+        final String lastDate = String.valueOf(this.lastDate);
+        try (Cursor cursor = contentResolver.query(uri, Call.PROJECTION, SELECTION, new String[]{lastDate, lastDate, String.valueOf(lastId)}, SORT_ORDER)) {
+            if (cursor == null) {
+                hasMore = false;
+                return Collections.emptyList();
+            }
+            final int[] columns = Call.columnIndexes(cursor);
+            final List<Call> calls = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                calls.add(new Call(cursor, columns));
+            }
+            hasMore = calls.size() >= pageSize;
+            if (!calls.isEmpty()) {
+                final Call last = calls.get(calls.size() - 1);
+                this.lastDate = last.dateTime;
+                this.lastId = last.id;
+            }
+            return calls;
+        } catch (SecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -18,47 +18,87 @@ package com.bald.uriah.baldphone.databases.calls;
 
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.CallLog;
 import android.provider.ContactsContract;
+import android.util.Pair;
+
+import androidx.annotation.Nullable;
 
 import com.bald.uriah.baldphone.BuildConfig;
-import com.bald.uriah.baldphone.adapters.CallsRecyclerViewAdapter;
 import com.bald.uriah.baldphone.databases.contacts.Contact;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
+import com.bald.uriah.baldphone.databases.contacts.MiniContact;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import static android.provider.CallLog.Calls.IS_READ;
 import static android.provider.CallLog.Calls.NEW;
-import static android.provider.CallLog.Calls.TYPE;
 
 /**
  * Simple Helper to get the call log.
  */
 public class CallLogsHelper {
-    public static List<Call> getAllCalls(ContentResolver contentResolver) {
-        try (Cursor cursor = contentResolver.query(CallLog.Calls.CONTENT_URI, Call.PROJECTION, null, null, CallLog.Calls.DATE + " DESC")) {
-            final List<Call> calls = new ArrayList<>(cursor.getCount());
-            while (cursor.moveToNext()) {
-                calls.add(new Call(cursor));
-            }
-            return calls;
-        } catch (SecurityException e) {
-            throw new RuntimeException(e);
+    /**
+     * attaches the contact of every call, so binding the calls does not look them up one by one.
+     * every lookup key and number is resolved once, no matter how many calls have it.
+     * should be called off the main thread, as the contacts directory may need to sync first.
+     */
+    public static void resolveContacts(Context context, List<Call> calls) {
+        final ContactsDirectory contactsDirectory = ContactsDirectory.getInstance(context);
+        final String[] callsLookupKeys = new String[calls.size()];
+        final Set<String> lookupKeys = new HashSet<>();
+        for (int i = 0; i < callsLookupKeys.length; i++) {
+            final Call call = calls.get(i);
+            if (call.isPrivate())
+                continue;
+            callsLookupKeys[i] = ContactsDirectory.lookupKeyOf(call.contactUri);
+            if (callsLookupKeys[i] != null)
+                lookupKeys.add(callsLookupKeys[i]);
+        }
+        Map<String, MiniContact> byLookupKey = contactsDirectory.getByLookupKeys(lookupKeys);
+        if (byLookupKey == null)
+            byLookupKey = Collections.emptyMap();
+
+        final Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < callsLookupKeys.length; i++) {
+            final Call call = calls.get(i);
+            if (!call.isPrivate() && (callsLookupKeys[i] == null || !byLookupKey.containsKey(callsLookupKeys[i])))
+                numbers.add(call.phoneNumber);
+        }
+        Map<String, MiniContact> byNumber = contactsDirectory.getByNumbers(numbers);
+        if (byNumber == null)
+            byNumber = Collections.emptyMap();
+
+        for (int i = 0; i < callsLookupKeys.length; i++) {
+            final Call call = calls.get(i);
+            final MiniContact miniContact = callsLookupKeys[i] == null ? null : byLookupKey.get(callsLookupKeys[i]);
+            call.setMiniContact(miniContact != null || call.isPrivate() ? miniContact : byNumber.get(call.phoneNumber));
         }
     }
 
-    public static List<Call> getForSpecificContact(ContentResolver contentResolver, Contact contact) {
+    /**
+     * queries the call log, so should not be called from the ui thread.
+     */
+    public static List<Call> getForSpecificContact(Context context, Contact contact) {
         if (BuildConfig.FLAVOR.equals("gPlay"))
             return new ArrayList<>();
+        final ContentResolver contentResolver = context.getContentResolver();
         final Uri contactUri = ContactsContract.Contacts.getLookupUri(contact.getId(), contact.getLookupKey());
         try (Cursor cursor = contentResolver.query(CallLog.Calls.CONTENT_URI, Call.PROJECTION, CallLog.Calls.CACHED_LOOKUP_URI + "=?", new String[]{contactUri.toString()}, CallLog.Calls.DATE + " DESC")) {
+            final int[] columns = Call.columnIndexes(cursor);
             final List<Call> calls = new ArrayList<>(cursor.getCount());
             while (cursor.moveToNext()) {
-                calls.add(new Call(cursor));
+                calls.add(new Call(cursor, columns));
             }
             return calls;
         } catch (SecurityException e) {
@@ -66,22 +106,29 @@ public class CallLogsHelper {
         }
     }
 
+    /**
+     * @return the counters of all of the numbers of the contact, see {@link CallStatsAggregator#getForNumbers(Collection)};
+     * null if none of them was called. reads the database, so should not be called from the ui thread.
+     */
+    @Nullable
+    public static CallStats getStatsForSpecificContact(Context context, Contact contact) {
+        if (BuildConfig.FLAVOR.equals("gPlay"))
+            return null;
+        final List<String> numbers = new ArrayList<>(contact.getPhoneList().size());
+        for (final Pair<Integer, String> phone : contact.getPhoneList())
+            numbers.add(phone.second);
+        return CallStatsAggregator.getInstance(context).getForNumbers(numbers);
+    }
+
     public static void markAllAsRead(ContentResolver contentResolver) {
         final ContentValues values = new ContentValues();
         values.put(IS_READ, true);
         values.put(CallLog.Calls.NEW, false);
         try {
-            contentResolver.update(CallLog.Calls.CONTENT_URI, values, null, null);
+            // only the calls which are not read yet, instead of rewriting the whole call log
+            contentResolver.update(CallLog.Calls.CONTENT_URI, values, String.format(Locale.US, "%s=0 OR %s=1", IS_READ, NEW), null);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
-
-    public static boolean isAllReadSafe(ContentResolver contentResolver) {
-        try (final Cursor cursor = contentResolver.query(CallLog.Calls.CONTENT_URI, new String[]{TYPE, IS_READ, NEW}, String.format(Locale.US, "%s=0 AND %s=1 AND %s=%d", IS_READ, NEW, TYPE, CallsRecyclerViewAdapter.MISSED_TYPE), null, null)) {
-            return cursor.getCount() == 0;
-        } catch (SecurityException ignore) {
-            return true;
-        }
-    }
 }
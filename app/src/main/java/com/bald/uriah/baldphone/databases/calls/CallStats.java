@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.calls;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.bald.uriah.baldphone.adapters.CallsRecyclerViewAdapter;
+
+/**
+ * Counters of all of the calls with a number, folded from the call log by {@link CallStatsAggregator}.
+ * calls which were deleted from the call log stay counted.
+ * <p>
+ * using this old java getters and setters because Room requires that.
+ * see {@link Entity}
+ */
+@Entity(indices = {@Index("call_count")})
+public class CallStats {
+    /**
+     * see {@link com.bald.uriah.baldphone.databases.contacts.ContactsDirectory#numberKey(String)}
+     */
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "number_key")
+    private String numberKey = "";
+
+    @ColumnInfo(name = "call_count")
+    private int callCount;
+
+    @ColumnInfo(name = "total_duration")
+    private long totalDuration;
+
+    /**
+     * missed calls since the last call which was answered or made
+     */
+    @ColumnInfo(name = "missed_streak")
+    private int missedStreak;
+
+    @ColumnInfo(name = "last_call_time")
+    private long lastCallTime;
+
+    /**
+     * the {@link android.provider.CallLog.Calls#_ID} of the last call which was folded
+     */
+    @ColumnInfo(name = "last_call_id")
+    private long lastCallId;
+
+    void fold(long callId, int callType, int duration, long dateTime) {
+        callCount++;
+        totalDuration += duration;
+        switch (callType) {
+            case CallsRecyclerViewAdapter.MISSED_TYPE:
+            case CallsRecyclerViewAdapter.REJECTED_TYPE:
+                missedStreak++;
+                break;
+            case CallsRecyclerViewAdapter.INCOMING_TYPE:
+            case CallsRecyclerViewAdapter.OUTGOING_TYPE:
+            case CallsRecyclerViewAdapter.ANSWERED_EXTERNALLY_TYPE:
+                missedStreak = 0;
+                break;
+        }
+        lastCallTime = Math.max(lastCallTime, dateTime);
+        lastCallId = Math.max(lastCallId, callId);
+    }
+
+    /**
+     * adds the counters of other numbers, like all of the numbers of a contact
+     */
+    void add(CallStats other) {
+        callCount += other.callCount;
+        totalDuration += other.totalDuration;
+        if (other.lastCallTime > lastCallTime) {
+            lastCallTime = other.lastCallTime;
+            missedStreak = other.missedStreak;
+        }
+        lastCallId = Math.max(lastCallId, other.lastCallId);
+    }
+
+    @NonNull
+    public String getNumberKey() {
+        return numberKey;
+    }
+
+    public void setNumberKey(@NonNull String numberKey) {
+        this.numberKey = numberKey;
+    }
+
+    public int getCallCount() {
+        return callCount;
+    }
+
+    public void setCallCount(int callCount) {
+        this.callCount = callCount;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(long totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    public int getMissedStreak() {
+        return missedStreak;
+    }
+
+    public void setMissedStreak(int missedStreak) {
+        this.missedStreak = missedStreak;
+    }
+
+    public long getLastCallTime() {
+        return lastCallTime;
+    }
+
+    public void setLastCallTime(long lastCallTime) {
+        this.lastCallTime = lastCallTime;
+    }
+
+    public long getLastCallId() {
+        return lastCallId;
+    }
+
+    public void setLastCallId(long lastCallId) {
+        this.lastCallId = lastCallId;
+    }
+}
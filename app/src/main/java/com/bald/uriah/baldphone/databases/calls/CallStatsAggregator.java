@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.calls;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.AsyncTask;
+import android.provider.CallLog;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
+import com.bald.uriah.baldphone.utils.D;
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps {@link CallStats} of every number up to date with the call log.
+ * only calls with an {@link CallLog.Calls#_ID} above the highest one which was folded are read,
+ * so after the first sync every change to the call log costs a single query of the new calls.
+ */
+public class CallStatsAggregator {
+    private static final String TAG = CallStatsAggregator.class.getSimpleName();
+    private static final String[] PROJECTION = {
+            CallLog.Calls._ID,
+            CallLog.Calls.NUMBER,
+            CallLog.Calls.TYPE,
+            CallLog.Calls.DURATION,
+            CallLog.Calls.DATE,
+    };
+    private static final String SELECTION = CallLog.Calls._ID + " > ?";
+    private static final String SORT_ORDER = CallLog.Calls._ID + " ASC";
+    private static final Object LOCK = new Object();
+    private static CallStatsAggregator callStatsAggregator = null;
+
+    private final ContentResolver contentResolver;
+    private final CallStatsDatabaseDao callStatsDatabaseDao;
+
+    private CallStatsAggregator(Context context) {
+        contentResolver = context.getContentResolver();
+        callStatsDatabaseDao = CallStatsDatabase.getInstance(context).callStatsDatabaseDao();
+        try {
+            contentResolver.registerContentObserver(CallLog.Calls.CONTENT_URI, true, new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    syncInBackground();
+                }
+            });
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+
+    public static CallStatsAggregator getInstance(@NonNull Context context) {
+        synchronized (LOCK) {
+            if (callStatsAggregator == null) {
+                callStatsAggregator = new CallStatsAggregator(context.getApplicationContext());
+                callStatsAggregator.syncInBackground();
+            }
+            return callStatsAggregator;
+        }
+    }
+
+    public void syncInBackground() {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(this::sync);
+    }
+
+    /**
+     * reads the counters without syncing, so they may miss the newest calls until the background sync folded them.
+     * reads the database, so should not be called from the ui thread.
+     *
+     * @param numbers the numbers of a contact
+     * @return the counters of all of the numbers together, or null if none of them was called
+     */
+    @Nullable
+    public CallStats getForNumbers(@NonNull Collection<String> numbers) {
+        final Set<String> numberKeys = new HashSet<>(numbers.size() * 2);
+        for (final String number : numbers) {
+            final String numberKey = ContactsDirectory.numberKey(number);
+            if (numberKey != null)
+                numberKeys.add(numberKey);
+        }
+        if (numberKeys.isEmpty())
+            return null;
+        CallStats ret = null;
+        for (final CallStats callStats : callStatsDatabaseDao.getByNumberKeys(numberKeys)) {
+            if (ret == null)
+                ret = callStats;
+            else
+                ret.add(callStats);
+        }
+        return ret;
+    }
+
+    /**
+     * reads the counters without syncing, like {@link #getForNumbers(Collection)}.
+     * the call_count index serves it without scanning the table.
+     *
+     * @return the numbers with the most calls, most first
+     */
+    @NonNull
+    public List<CallStats> getMostContacted(int limit) {
+        return callStatsDatabaseDao.getMostContacted(limit);
+    }
+
+    /**
+     * folds the calls which were added since the last sync.
+     * the high water mark is the highest call id the counters hold, and the counters are replaced in a single transaction,
+     * so a call is never counted twice.
+     */
+    public synchronized void sync() {
+        final long highWaterMark = callStatsDatabaseDao.getHighWaterMark();
+        final List<String> numberKeys = new ArrayList<>();
+        // id, type, duration and date of every call
+        final List<long[]> calls = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(CallLog.Calls.CONTENT_URI, PROJECTION, SELECTION, new String[]{String.valueOf(highWaterMark)}, SORT_ORDER)) {
+            if (cursor == null)
+                return;
+            while (cursor.moveToNext()) {
+                final String numberKey = ContactsDirectory.numberKey(cursor.getString(1));
+                // private numbers have no digits
+                if (numberKey == null)
+                    continue;
+                numberKeys.add(numberKey);
+                calls.add(new long[]{cursor.getLong(0), cursor.getInt(2), cursor.getInt(3), cursor.getLong(4)});
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+            return;
+        }
+        if (calls.isEmpty())
+            return;
+
+        final List<String> distinctNumberKeys = new ArrayList<>(new HashSet<>(numberKeys));
+        final Map<String, CallStats> touched = new HashMap<>(distinctNumberKeys.size() * 2);
+        for (int i = 0; i < distinctNumberKeys.size(); i += D.SQLITE_MAX_VARIABLES) {
+            for (final CallStats callStats : callStatsDatabaseDao.getByNumberKeys(distinctNumberKeys.subList(i, Math.min(i + D.SQLITE_MAX_VARIABLES, distinctNumberKeys.size()))))
+                touched.put(callStats.getNumberKey(), callStats);
+        }
+        for (int i = 0; i < calls.size(); i++) {
+            final String numberKey = numberKeys.get(i);
+            CallStats callStats = touched.get(numberKey);
+            if (callStats == null) {
+                callStats = new CallStats();
+                callStats.setNumberKey(numberKey);
+                touched.put(numberKey, callStats);
+            }
+            final long[] call = calls.get(i);
+            callStats.fold(call[0], (int) call[1], (int) call[2], call[3]);
+        }
+        callStatsDatabaseDao.replaceAll(touched.values());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.calls;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+@Dao
+public interface CallStatsDatabaseDao {
+
+    @Query("SELECT * FROM CallStats WHERE number_key IN (:numberKeys)")
+    List<CallStats> getByNumberKeys(Collection<String> numberKeys);
+
+    @Query("SELECT * FROM CallStats ORDER BY call_count DESC LIMIT :limit")
+    List<CallStats> getMostContacted(int limit);
+
+    @Query("SELECT MAX(last_call_id) FROM CallStats")
+    long getHighWaterMark();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void replaceAll(Collection<CallStats> callStats);
+
+    @Query("DELETE FROM CallStats")
+    void deleteAll();
+}
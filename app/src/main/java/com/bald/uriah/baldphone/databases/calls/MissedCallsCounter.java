@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.calls;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CallLog;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.adapters.CallsRecyclerViewAdapter;
+import com.bald.uriah.baldphone.utils.D;
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static android.provider.CallLog.Calls.IS_READ;
+import static android.provider.CallLog.Calls.NEW;
+import static android.provider.CallLog.Calls.TYPE;
+
+/**
+ * Application scoped count of the missed calls which were not seen yet.
+ * the call log is counted once and then again only after it changes, and a burst of changes is counted once,
+ * so reading the count never queries the call log.
+ * until READ_CALL_LOG is granted the call log can neither be observed nor counted, so both are retried whenever a listener is added.
+ */
+public class MissedCallsCounter {
+    private static final String TAG = MissedCallsCounter.class.getSimpleName();
+    private static final int DEBOUNCE_DELAY = 500 * D.MILLISECOND;
+    private static final int UNKNOWN = -1;
+    private static final String SELECTION =
+            String.format(Locale.US, "%s=0 AND %s=1 AND %s=%d", IS_READ, NEW, TYPE, CallsRecyclerViewAdapter.MISSED_TYPE);
+    private static final Object LOCK = new Object();
+    private static MissedCallsCounter missedCallsCounter = null;
+
+    private final ContentResolver contentResolver;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = this::refresh;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final ContentObserver contentObserver = new ContentObserver(handler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            handler.removeCallbacks(refreshRunnable);
+            handler.postDelayed(refreshRunnable, DEBOUNCE_DELAY);
+        }
+    };
+    // all are only accessed on the main thread
+    private int count = UNKNOWN;
+    private int generation;
+    private boolean observing;
+
+    private MissedCallsCounter(Context context) {
+        contentResolver = context.getContentResolver();
+        observe();
+    }
+
+    /**
+     * registers the observer, fails without READ_CALL_LOG
+     */
+    @MainThread
+    private void observe() {
+        try {
+            contentResolver.registerContentObserver(CallLog.Calls.CONTENT_URI, true, contentObserver);
+            observing = true;
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+
+    @MainThread
+    public static MissedCallsCounter getInstance(@NonNull Context context) {
+        synchronized (LOCK) {
+            if (missedCallsCounter == null) {
+                missedCallsCounter = new MissedCallsCounter(context.getApplicationContext());
+                missedCallsCounter.refresh();
+            }
+            return missedCallsCounter;
+        }
+    }
+
+    /**
+     * @return the last count, 0 until the call log was counted
+     */
+    @MainThread
+    public int getCount() {
+        return Math.max(count, 0);
+    }
+
+    /**
+     * the listener is called right away with the last count if the call log was counted, and after that whenever the count changes.
+     * if the call log could not be observed yet, observing and counting it are retried.
+     */
+    @MainThread
+    public void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+        if (!observing) {
+            observe();
+            refresh();
+        }
+        if (count != UNKNOWN)
+            listener.onMissedCallsChanged(count);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * counts the call log on a background thread, counts which finish after a newer one started are dropped,
+     * and so are counts which failed, so a missing permission is not mistaken for no missed calls
+     */
+    @MainThread
+    public void refresh() {
+        final int generation = ++this.generation;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            final int newCount = query();
+            handler.post(() -> {
+                if (generation != this.generation || newCount == UNKNOWN || newCount == count)
+                    return;
+                count = newCount;
+                for (final Listener listener : new ArrayList<>(listeners))
+                    listener.onMissedCallsChanged(newCount);
+            });
+        });
+    }
+
+    /**
+     * @return the count, or {@link #UNKNOWN} if the call log could not be read
+     */
+    private int query() {
+        try (final Cursor cursor = contentResolver.query(CallLog.Calls.CONTENT_URI, new String[]{CallLog.Calls._ID}, SELECTION, null, null)) {
+            return cursor == null ? UNKNOWN : cursor.getCount();
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            return UNKNOWN;
+        }
+    }
+
+    public interface Listener {
+        @MainThread
+        void onMissedCallsChanged(int count);
+    }
+}
@@ -19,14 +19,12 @@ package com.bald.uriah.baldphone.databases.contacts;
 import android.content.ContentResolver;
 import android.database.Cursor;
 import android.provider.ContactsContract;
-import android.text.TextUtils;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.bald.uriah.baldphone.utils.Constants;
-import com.bald.uriah.baldphone.utils.D;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -97,6 +95,8 @@ public class Contact implements Constants.ContactConstants {
     }
 
     /**
+     * reads all of the phones, mails, addresses and whatsapp numbers of the contact in a single {@link ContactsContract.Data} query.
+     *
      * @param cursor          cursor with the following projection: {{@link #PROJECTION}}
      * @param contentResolver a content resolver
      * @return the contact
@@ -107,7 +107,7 @@ public class Contact implements Constants.ContactConstants {
         final List<Pair<Integer /*Type*/, String>> phoneList = new ArrayList<>();
         final List<String> mailList = new ArrayList<>();
         final List<Pair<Integer, String[]>> addressList = new ArrayList<>();
-        final List<String> whatsappNumbers;
+        final List<String> whatsappNumbers = new ArrayList<>();
         final String name;
         final String photo;
         final boolean favorite;
@@ -117,76 +117,54 @@ public class Contact implements Constants.ContactConstants {
         lookupKey = cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY));
         photo = cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI));
 
-        try (final Cursor pCur = contentResolver.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, PHONE_PROJECTION, PHONE_SELECTION, new String[]{id}, null)) {
-            while (pCur.moveToNext()) {
-                phoneList.add(new Pair<>(
-                        pCur.getInt(PHONE_TYPE_INDEX),
-                        pCur.getString(PHONE_NUMBER_INDEX)
-                ));
-            }
-        }
-
-        try (final Cursor emailCur = contentResolver.query(ContactsContract.CommonDataKinds.Email.CONTENT_URI, EMAIL_PROJECTION, EMAIL_SELECTION, new String[]{id}, null)) {
-            while (emailCur.moveToNext()) {
-                mailList.add(emailCur.getString(EMAIL_DATA_INDEX));
-            }
-        }
-
-        //Get Postal Address...
-        try (final Cursor addrCur = contentResolver.query(ContactsContract.Data.CONTENT_URI,
-                ADDRESS_PROJECTION,
-                ADDRESS_SELECTION,
-                new String[]{id, ContactsContract.CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE},
+        try (final Cursor dataCursor = contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                DATA_PROJECTION,
+                DATA_SELECTION,
+                new String[]{
+                        id,
+                        ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
+                        ContactsContract.CommonDataKinds.Email.CONTENT_ITEM_TYPE,
+                        ContactsContract.CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE,
+                        WHATSAPP_PROFILE_MIMETYPE
+                },
                 null)) {
-            while (addrCur.moveToNext()) {
-                addressList.add(new Pair<>(addrCur.getInt(addrCur.getColumnIndex(ContactsContract.CommonDataKinds.StructuredPostal.TYPE)), new String[]{
-                        addrCur.getString(POBOX_INDEX),
-                        addrCur.getString(STREET_INDEX),
-                        addrCur.getString(CITY_INDEX),
-                        addrCur.getString(REGION_INDEX),
-                        addrCur.getString(POSTCODE_INDEX),
-                        addrCur.getString(COUNTRY_INDEX)
-                }));
+            String mimetype, phoneNumber;
+            while (dataCursor != null && dataCursor.moveToNext()) {
+                mimetype = dataCursor.getString(DATA_MIMETYPE_INDEX);
+                switch (mimetype) {
+                    case ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE:
+                        phoneList.add(new Pair<>(
+                                dataCursor.getInt(PHONE_TYPE_INDEX),
+                                dataCursor.getString(PHONE_NUMBER_INDEX)
+                        ));
+                        break;
+                    case ContactsContract.CommonDataKinds.Email.CONTENT_ITEM_TYPE:
+                        mailList.add(dataCursor.getString(EMAIL_DATA_INDEX));
+                        break;
+                    case ContactsContract.CommonDataKinds.StructuredPostal.CONTENT_ITEM_TYPE:
+                        addressList.add(new Pair<>(dataCursor.getInt(ADDRESS_TYPE_INDEX), new String[]{
+                                dataCursor.getString(POBOX_INDEX),
+                                dataCursor.getString(STREET_INDEX),
+                                dataCursor.getString(CITY_INDEX),
+                                dataCursor.getString(REGION_INDEX),
+                                dataCursor.getString(POSTCODE_INDEX),
+                                dataCursor.getString(COUNTRY_INDEX)
+                        }));
+                        break;
+                    case WHATSAPP_PROFILE_MIMETYPE:
+                        phoneNumber = WhatsAppNumbersIndex.cleanNumber(dataCursor.getString(WHATSAPP_NUMBER_INDEX));
+                        if (phoneNumber != null)
+                            whatsappNumbers.add(phoneNumber);
+                        break;
+                }
             }
         }
 
-        whatsappNumbers = getWhatsAppNumbers(contentResolver, name);
         favorite = cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts.STARRED)) == 1;
         return new Contact(Integer.parseInt(id), lookupKey, phoneList, mailList, addressList, whatsappNumbers, name, photo, favorite);
     }
 
-    /**
-     * @param contentResolver - a content resolver
-     * @param contactName     - the contact DISPLAY_NAME
-     * @return List of the whatsapp numbers.
-     */
-    private static List<String> getWhatsAppNumbers(ContentResolver contentResolver, String contactName) {
-        final List<String> whatsappNumbers = new ArrayList<>();
-        try (final Cursor cursor1 =
-                     contentResolver.query(
-                             ContactsContract.RawContacts.CONTENT_URI,
-                             new String[]{ContactsContract.RawContacts._ID},
-                             ContactsContract.RawContacts.ACCOUNT_TYPE + "= ? AND " + ContactsContract.CommonDataKinds.StructuredName.DISPLAY_NAME_PRIMARY + " = ?",
-                             new String[]{D.WHATSAPP_PACKAGE_NAME, contactName},
-                             null)) {
-            String rawContactId, phoneNumber;
-            while (cursor1.moveToNext()) {
-                rawContactId = cursor1.getString(cursor1.getColumnIndex(ContactsContract.RawContacts._ID));
-                try (Cursor cursor2 = contentResolver.query(ContactsContract.Data.CONTENT_URI, new String[]{ContactsContract.Data.DATA3}, ContactsContract.Data.MIMETYPE + " = ? AND " + ContactsContract.Data.RAW_CONTACT_ID + " = ? ", new String[]{"vnd.android.cursor.item/vnd.com.whatsapp.profile", rawContactId}, null)) {
-                    while (cursor2.moveToNext()) {
-                        phoneNumber = cursor2.getString(0);
-                        if (TextUtils.isEmpty(phoneNumber))
-                            continue;
-                        if (phoneNumber.startsWith("Message"))
-                            phoneNumber = phoneNumber.replace("Message", "");
-                        whatsappNumbers.add(phoneNumber);
-                    }
-                }
-            }
-            return whatsappNumbers;
-        }
-    }
-
     @NonNull
     public List<Pair<Integer, String[]>> getAddressList() {
         return addressList;
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fuzzy matching of contact names, for names which were dictated or typed in the other alphabet.
+ * every word of a name is reduced to a phonetic key - hebrew is transliterated to latin, vowels are dropped,
+ * and letters which sound alike are folded - so "משה כהן" and "moshe cohen" both become "ms khn".
+ * the keys of the filter are matched against the keys of the names by a bounded edit distance.
+ */
+final class ContactNameMatcher {
+    private static final String[] EMPTY = new String[0];
+    /**
+     * transliteration of the hebrew letters (after final letters were folded), starting at 'א'.
+     * letters which are mostly used as vowels are dropped.
+     */
+    private static final String[] HEBREW = {
+            "", "b", "g", "d", "h", "", "z", "h", "t", "", "k", "k", "l", "m", "m", "n", "n", "s", "", "p", "p", "c", "c", "k", "r", "s", "t"
+    };
+
+    private ContactNameMatcher() {
+    }
+
+    /**
+     * @return the phonetic keys of the words of the name, words without any consonant are dropped
+     */
+    @NonNull
+    static String[] phoneticKeys(@NonNull String name) {
+        final String normalized = S.normalize(name);
+        if (normalized.isEmpty())
+            return EMPTY;
+        final List<String> keys = new ArrayList<>();
+        for (final String word : normalized.split(" ")) {
+            final String key = phoneticKey(word);
+            if (!key.isEmpty())
+                keys.add(key);
+        }
+        return keys.toArray(EMPTY);
+    }
+
+    private static String phoneticKey(String word) {
+        final StringBuilder key = new StringBuilder(word.length());
+        final int length = word.length();
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = word.charAt(i);
+            final char next = i + 1 < length ? word.charAt(i + 1) : 0;
+            final String sound;
+            if (c >= 'א' && c <= 'ת') {
+                // a final ה is a vowel
+                sound = c == 'ה' && i == length - 1 ? "" : HEBREW[c - 'א'];
+            } else {
+                switch (c) {
+                    case 's':
+                    case 'c':
+                        if (next == 'h') {
+                            sound = c == 's' ? "s" : "h";
+                            i++;
+                        } else
+                            sound = c == 's' ? "s" : "k";
+                        break;
+                    case 't':
+                        if (next == 'z' || next == 's') {
+                            sound = "c";
+                            i++;
+                        } else
+                            sound = "t";
+                        break;
+                    case 'p':
+                        if (next == 'h')
+                            i++;
+                        sound = "p";
+                        break;
+                    case 'k':
+                        if (next == 'h') {
+                            sound = "h";
+                            i++;
+                        } else
+                            sound = "k";
+                        break;
+                    case 'f':
+                        sound = "p";
+                        break;
+                    case 'v':
+                    case 'w':
+                        sound = "b";
+                        break;
+                    case 'q':
+                        sound = "k";
+                        break;
+                    case 'x':
+                        sound = "ks";
+                        break;
+                    case 'j':
+                        sound = "g";
+                        break;
+                    case 'a':
+                    case 'e':
+                    case 'i':
+                    case 'o':
+                    case 'u':
+                    case 'y':
+                        sound = "";
+                        break;
+                    case 'h':
+                        // a final h is a vowel, like the final ה
+                        sound = i == length - 1 ? "" : "h";
+                        break;
+                    default:
+                        sound = c >= 'a' && c <= 'z' ? String.valueOf(c) : "";
+                }
+            }
+            // doubled letters sound like one, but the same letter on both sides of a vowel is kept
+            if (!sound.isEmpty() && sound.charAt(0) != previous)
+                key.append(sound);
+            previous = sound.isEmpty() ? 0 : sound.charAt(sound.length() - 1);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param filterKeys keys of the filter, see {@link #phoneticKeys(String)}
+     * @param nameKeys   keys of a name
+     * @return the sum of the distances of every filter key to its closest name key,
+     * or -1 if one of the filter keys is too far from all of the name keys
+     */
+    static int distance(@NonNull String[] filterKeys, @NonNull String[] nameKeys) {
+        if (filterKeys.length == 0 || nameKeys.length == 0)
+            return -1;
+        int sum = 0;
+        for (final String filterKey : filterKeys) {
+            final int max = maxDistance(filterKey);
+            int best = max + 1;
+            for (final String nameKey : nameKeys)
+                best = Math.min(best, prefixDistance(filterKey, nameKey, best - 1));
+            if (best > max)
+                return -1;
+            sum += best;
+        }
+        return sum;
+    }
+
+    private static int maxDistance(String key) {
+        return key.length() < 3 ? 0 : key.length() < 6 ? 1 : 2;
+    }
+
+    /**
+     * edit distance between the filter key and the closest prefix of the name key, so partly typed words match.
+     *
+     * @return the distance, or a number bigger than max once it is known that the distance is bigger than max
+     */
+    private static int prefixDistance(String filterKey, String nameKey, int max) {
+        final int m = filterKey.length(), n = nameKey.length();
+        if (m - n > max)
+            return max + 1;
+        int[] previous = new int[n + 1], current = new int[n + 1];
+        for (int j = 0; j <= n; j++)
+            previous[j] = j;
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                final int cost = filterKey.charAt(i - 1) == nameKey.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max)
+                return max + 1;
+            final int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        int best = previous[0];
+        for (int j = 1; j <= n; j++)
+            best = Math.min(best, previous[j]);
+        return best;
+    }
+
+    /**
+     * keeps the k best matches seen so far in a bounded max heap, so ranking all of the contacts does not sort them all.
+     */
+    static class TopK {
+        private final int k;
+        // worst match at the head; ties are broken by position, which is the name order
+        private final PriorityQueue<long[]> heap;
+
+        TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k + 1, (o1, o2) -> o1[0] != o2[0] ? Long.compare(o2[0], o1[0]) : Long.compare(o2[1], o1[1]));
+        }
+
+        void offer(int position, int distance) {
+            if (heap.size() == k) {
+                final long[] worst = heap.peek();
+                if (worst[0] < distance || (worst[0] == distance && worst[1] < position))
+                    return;
+                heap.poll();
+            }
+            heap.add(new long[]{distance, position});
+        }
+
+        /**
+         * @return the positions, best match first
+         */
+        int[] positions() {
+            final int[] positions = new int[heap.size()];
+            for (int i = positions.length - 1; i >= 0; i--)
+                positions[i] = (int) heap.poll()[1];
+            return positions;
+        }
+    }
+}
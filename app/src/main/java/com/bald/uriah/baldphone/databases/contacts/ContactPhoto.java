@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * Model for loading a contact's photo with Glide - <code>Glide.with(view).load(contactPhoto)</code>.
+ * it is identified by the lookup key, the photo id and the size, so a new photo is a new model, see {@link ContactPhotoModelLoader}.
+ * lists load the thumbnail, big buttons load the full photo with {@link #fullSize()}.
+ */
+public class ContactPhoto {
+    /**
+     * size in pixels of the thumbnails, the contacts provider stores thumbnails of 96x96
+     */
+    public static final int THUMBNAIL_SIZE = 96;
+    /**
+     * options for the thumbnails in lists - decoded once to the thumbnail size, and that is what the disk cache keeps
+     */
+    public static final RequestOptions REQUEST_OPTIONS =
+            new RequestOptions()
+                    .override(THUMBNAIL_SIZE)
+                    .diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+    /**
+     * options for the full photos, decoded to the size of the view they are loaded into
+     */
+    public static final RequestOptions FULL_SIZE_REQUEST_OPTIONS =
+            new RequestOptions()
+                    .diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+
+    public final String lookupKey;
+    public final long photoId;
+    /**
+     * true for the full photo, false for the thumbnail
+     */
+    public final boolean highRes;
+
+    public ContactPhoto(@NonNull String lookupKey, long photoId) {
+        this(lookupKey, photoId, false);
+    }
+
+    private ContactPhoto(@NonNull String lookupKey, long photoId, boolean highRes) {
+        this.lookupKey = lookupKey;
+        this.photoId = photoId;
+        this.highRes = highRes;
+    }
+
+    /**
+     * @return the photo of the contact, or null if it has no photo
+     */
+    @Nullable
+    public static ContactPhoto of(@Nullable String lookupKey, long photoId) {
+        return lookupKey == null || photoId == 0 ? null : new ContactPhoto(lookupKey, photoId);
+    }
+
+    /**
+     * @return the full photo of the same contact, to be loaded with {@link #FULL_SIZE_REQUEST_OPTIONS}
+     */
+    @NonNull
+    public ContactPhoto fullSize() {
+        return highRes ? this : new ContactPhoto(lookupKey, photoId, true);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ContactPhoto that = (ContactPhoto) o;
+        return photoId == that.photoId && highRes == that.highRes && lookupKey.equals(that.lookupKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * lookupKey.hashCode() + (int) (photoId ^ (photoId >>> 32))) + (highRes ? 1 : 0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return lookupKey + "/" + photoId + (highRes ? "/full" : "");
+    }
+}
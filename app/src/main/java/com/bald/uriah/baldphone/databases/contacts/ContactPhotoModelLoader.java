@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.ContactsContract;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lets Glide load a {@link ContactPhoto}.
+ * the key of every load is the lookup key and the photo id, so the memory and disk caches are hit without asking the contacts provider,
+ * and only a changed photo is read again. the provider is only asked for the full photo if the model is {@link ContactPhoto#highRes}.
+ */
+public class ContactPhotoModelLoader implements ModelLoader<ContactPhoto, InputStream> {
+    private final ContentResolver contentResolver;
+
+    private ContactPhotoModelLoader(ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+    }
+
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull ContactPhoto contactPhoto, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(contactPhoto.toString()), new ContactPhotoFetcher(contentResolver, contactPhoto));
+    }
+
+    @Override
+    public boolean handles(@NonNull ContactPhoto contactPhoto) {
+        return true;
+    }
+
+    private static class ContactPhotoFetcher implements DataFetcher<InputStream> {
+        private final ContentResolver contentResolver;
+        private final ContactPhoto contactPhoto;
+        @Nullable
+        private InputStream inputStream;
+
+        ContactPhotoFetcher(ContentResolver contentResolver, ContactPhoto contactPhoto) {
+            this.contentResolver = contentResolver;
+            this.contactPhoto = contactPhoto;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            final Uri contactUri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_LOOKUP_URI, contactPhoto.lookupKey);
+            try {
+                inputStream = ContactsContract.Contacts.openContactPhotoInputStream(contentResolver, contactUri, contactPhoto.highRes);
+            } catch (SecurityException | IllegalArgumentException e) {
+                callback.onLoadFailed(e);
+                return;
+            }
+            if (inputStream == null)
+                callback.onLoadFailed(new FileNotFoundException("contact has no photo " + contactPhoto));
+            else
+                callback.onDataReady(inputStream);
+        }
+
+        @Override
+        public void cleanup() {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<ContactPhoto, InputStream> {
+        private final ContentResolver contentResolver;
+
+        public Factory(Context context) {
+            this.contentResolver = context.getApplicationContext().getContentResolver();
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<ContactPhoto, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new ContactPhotoModelLoader(contentResolver);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,822 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.provider.ContactsContract;
+import android.telephony.PhoneNumberUtils;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bald.uriah.baldphone.utils.D;
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application scoped, in memory directory of the contacts.
+ * it is loaded once on a background thread, and after that a ContentObserver marks it dirty -
+ * a background sync then only queries the contacts which were updated or deleted since the last sync, and merges them in.
+ * the contacts are kept in parallel arrays, sorted the same way the contacts screens sorted their queries.
+ * every sync publishes a new immutable snapshot, so reads never wait for a sync, except for the very first load.
+ */
+public class ContactsDirectory {
+    private static final String TAG = ContactsDirectory.class.getSimpleName();
+    /**
+     * the columns of the cursors returned by the query methods,
+     * same as {@link com.bald.uriah.baldphone.adapters.ContactRecyclerViewAdapter#PROJECTION}
+     */
+    private static final String[] CURSOR_COLUMNS = {
+            ContactsContract.Data.DISPLAY_NAME,
+            ContactsContract.Data._ID,
+            ContactsContract.Contacts.PHOTO_URI,
+            ContactsContract.Data.LOOKUP_KEY,
+            ContactsContract.Data.STARRED,
+            ContactsContract.Contacts.PHOTO_ID};
+    private static final String[] CONTACTS_PROJECTION = {
+            ContactsContract.Contacts._ID,
+            ContactsContract.Contacts.LOOKUP_KEY,
+            ContactsContract.Contacts.DISPLAY_NAME,
+            ContactsContract.Contacts.PHOTO_URI,
+            ContactsContract.Contacts.STARRED,
+            ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP,
+            ContactsContract.Contacts.PHOTO_ID};
+    private static final String[] PHONES_PROJECTION = {
+            ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+            ContactsContract.CommonDataKinds.Phone.NUMBER};
+    private static final String[] DELETED_PROJECTION = {
+            ContactsContract.DeletedContacts.CONTACT_ID,
+            ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP};
+    /**
+     * numbers are matched by their last digits, same as the telephony provider does
+     */
+    private static final int MIN_MATCH = 7;
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+    private static final int FUZZY_MIN_FILTER_LENGTH = 2;
+    private static final int FUZZY_RESULTS_LIMIT = 20;
+    private static final Object LOCK = new Object();
+    private static ContactsDirectory contactsDirectory = null;
+
+    private final Context context;
+    private final ContentResolver contentResolver;
+    private final Object syncLock = new Object();
+    private final AtomicBoolean syncScheduled = new AtomicBoolean();
+    private final List<OnChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot = null;
+    private volatile boolean dirty = true;
+    /**
+     * the newest timestamps which were synced, and the ids which were synced with exactly them.
+     * the timestamps are queried inclusively, since another contact may change in the same millisecond,
+     * and the ids which were already synced are skipped. only accessed while holding {@link #syncLock}.
+     */
+    private long updatedHighWaterMark = 0, deletedHighWaterMark = 0;
+    private Set<Long> updatedAtHighWaterMark = Collections.emptySet(), deletedAtHighWaterMark = Collections.emptySet();
+
+    /**
+     * use {@link #getInstance(Context)}, the tests construct their own directories over a fake contacts provider
+     */
+    ContactsDirectory(Context context) {
+        this.context = context;
+        contentResolver = context.getContentResolver();
+        try {
+            contentResolver.registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate();
+                    prefetch();
+                }
+            });
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+
+    public static ContactsDirectory getInstance(@NonNull Context context) {
+        synchronized (LOCK) {
+            if (contactsDirectory == null) {
+                contactsDirectory = new ContactsDirectory(context.getApplicationContext());
+                contactsDirectory.prefetch();
+            }
+            return contactsDirectory;
+        }
+    }
+
+    /**
+     * brings the directory up to date on a background thread, so the next read will not have to wait for the provider.
+     */
+    public void prefetch() {
+        if (syncScheduled.compareAndSet(false, true))
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+                // cleared before the sync, so a change during the sync schedules another one
+                syncScheduled.set(false);
+                sync();
+            });
+    }
+
+    /**
+     * the listener is called on a background thread whenever a sync published new contacts
+     */
+    public void addOnChangeListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnChangeListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * marks the directory as out of date, should be called after this app changed a contact,
+     * so the change is synced even if the ContentObserver was not notified yet.
+     * the change is visible once a sync published it, see {@link #addOnChangeListener(OnChangeListener)}.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * @param filter lower cased part of the name
+     * @return cursor of the contacts whose name contains the filter, sorted by name
+     */
+    @NonNull
+    public Cursor queryByName(@Nullable String filter, boolean favoritesOnly) {
+        return queryByName(filter, favoritesOnly, null, null);
+    }
+
+    /**
+     * @param cancellationSignal checked while scanning, cancelling it throws {@link OperationCanceledException}
+     */
+    @NonNull
+    public Cursor queryByName(@Nullable String filter, boolean favoritesOnly, @Nullable CancellationSignal cancellationSignal) {
+        return queryByName(filter, favoritesOnly, null, cancellationSignal);
+    }
+
+    /**
+     * same as {@link #queryByName(String, boolean, CancellationSignal)}, but only for contacts which have a whatsapp number
+     */
+    @NonNull
+    public Cursor queryWhatsAppByName(@Nullable String filter, boolean favoritesOnly, @Nullable CancellationSignal cancellationSignal) {
+        return queryByName(filter, favoritesOnly, WhatsAppNumbersIndex.getInstance(context), cancellationSignal);
+    }
+
+    /**
+     * @param number part of a phone number, separators are ignored
+     * @return cursor of the contacts which have a number containing the given number, sorted by name
+     */
+    @NonNull
+    public Cursor queryByNumber(@NonNull String number, boolean favoritesOnly) {
+        return queryByNumber(number, favoritesOnly, null);
+    }
+
+    /**
+     * @param cancellationSignal checked while scanning, cancelling it throws {@link OperationCanceledException}
+     */
+    @NonNull
+    public Cursor queryByNumber(@NonNull String number, boolean favoritesOnly, @Nullable CancellationSignal cancellationSignal) {
+        final Snapshot snapshot = snapshot();
+        final String digits = digitsOf(number);
+        final MatrixCursor cursor = new MatrixCursor(CURSOR_COLUMNS);
+        for (int i = 0; i < snapshot.size(); i++) {
+            throwIfCanceled(cancellationSignal, i);
+            if (!snapshot.isListable(i) || (favoritesOnly && !snapshot.starred[i]))
+                continue;
+            for (final String contactNumber : snapshot.numbers[i]) {
+                if (contactNumber.contains(digits)) {
+                    snapshot.addRow(cursor, i);
+                    break;
+                }
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * the snapshot may be out of date, so lookup keys which are missing from it are confirmed with the provider,
+     * in queries of up to {@link D#SQLITE_MAX_VARIABLES} keys.
+     *
+     * @return the contacts of the given lookup keys, by the given lookup keys - a key which is missing was deleted;
+     * null if the contacts could not be read, so callers can tell that apart from contacts which were deleted
+     */
+    @Nullable
+    public Map<String, MiniContact> getByLookupKeys(@NonNull Collection<String> lookupKeys) {
+        final Snapshot snapshot = snapshot();
+        if (snapshot == Snapshot.UNAVAILABLE)
+            return null;
+        final Map<String, MiniContact> ret = new HashMap<>(lookupKeys.size() * 2);
+        final Set<String> missing = new HashSet<>();
+        for (final String lookupKey : lookupKeys) {
+            final Integer position = snapshot.positionByLookupKey.get(lookupKey);
+            if (position != null)
+                ret.put(lookupKey, snapshot.miniContact(position));
+            else if (lookupKey != null)
+                missing.add(lookupKey);
+        }
+        final List<String> missingKeys = new ArrayList<>(missing);
+        // the missing keys are confirmed in chunks, not one query per key
+        for (int i = 0; i < missingKeys.size(); i += D.SQLITE_MAX_VARIABLES) {
+            final List<String> chunk = missingKeys.subList(i, Math.min(i + D.SQLITE_MAX_VARIABLES, missingKeys.size()));
+            try (Cursor cursor = contentResolver.query(ContactsContract.Contacts.CONTENT_URI, CONTACTS_PROJECTION,
+                    ContactsContract.Contacts.LOOKUP_KEY + " IN (" + S.sqlPlaceholders(chunk.size()) + ")",
+                    chunk.toArray(new String[0]), null)) {
+                if (cursor == null)
+                    return null;
+                while (cursor.moveToNext())
+                    ret.put(cursor.getString(1), new MiniContact(cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                            cursor.getLong(6), cursor.getInt(0), cursor.getInt(4) == 1));
+            } catch (RuntimeException e) {
+                Log.e(TAG, S.str(e.getMessage()));
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return a new search for the dialer, which narrows its previous results while digits are added
+     */
+    @NonNull
+    public DialerSearch newDialerSearch() {
+        return new DialerSearch();
+    }
+
+    @Nullable
+    public MiniContact getByLookupKey(@Nullable String lookupKey) {
+        if (lookupKey == null)
+            return null;
+        final Snapshot snapshot = snapshot();
+        final Integer position = snapshot.positionByLookupKey.get(lookupKey);
+        return position == null ? null : snapshot.miniContact(position);
+    }
+
+    /**
+     * @param lookupUri a contact lookup uri, like the ones the call log caches
+     */
+    @Nullable
+    public MiniContact getByLookupUri(@Nullable String lookupUri) {
+        return getByLookupKey(lookupKeyOf(lookupUri));
+    }
+
+    @Nullable
+    public MiniContact getByNumber(@Nullable String number) {
+        if (number == null)
+            return null;
+        return findByNumber(snapshot(), number);
+    }
+
+    /**
+     * same as {@link #getByNumber(String)} for many numbers, all of them are matched against the same snapshot.
+     *
+     * @return the contacts of the given numbers which were found, by their numbers;
+     * null if the contacts could not be read
+     */
+    @Nullable
+    public Map<String, MiniContact> getByNumbers(@NonNull Collection<String> numbers) {
+        final Snapshot snapshot = snapshot();
+        if (snapshot == Snapshot.UNAVAILABLE)
+            return null;
+        final Map<String, MiniContact> ret = new HashMap<>(numbers.size() * 2);
+        for (final String number : numbers) {
+            if (number == null || ret.containsKey(number))
+                continue;
+            final MiniContact miniContact = findByNumber(snapshot, number);
+            if (miniContact != null)
+                ret.put(number, miniContact);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the lookup key of a contact lookup uri, or null if it is not one
+     */
+    @Nullable
+    public static String lookupKeyOf(@Nullable String lookupUri) {
+        if (lookupUri == null)
+            return null;
+        final List<String> segments = Uri.parse(lookupUri).getPathSegments();
+        // contacts/lookup/<lookup key>/<id>
+        if (segments.size() < 3 || !"lookup".equals(segments.get(1)))
+            return null;
+        return segments.get(2);
+    }
+
+    @Nullable
+    private static MiniContact findByNumber(Snapshot snapshot, String number) {
+        final String digits = digitsOf(number);
+        if (digits.isEmpty())
+            return null;
+        final int[] positions = snapshot.positionsByMinMatch.get(minMatch(digits));
+        if (positions == null)
+            return null;
+        for (final int position : positions)
+            for (final String contactNumber : snapshot.numbers[position])
+                if (PhoneNumberUtils.compare(contactNumber, digits))
+                    return snapshot.miniContact(position);
+        return null;
+    }
+
+    @NonNull
+    private Cursor queryByName(@Nullable String filter, boolean favoritesOnly, @Nullable WhatsAppNumbersIndex whatsAppNumbersIndex, @Nullable CancellationSignal cancellationSignal) {
+        final Snapshot snapshot = snapshot();
+        final MatrixCursor cursor = new MatrixCursor(CURSOR_COLUMNS);
+        for (int i = 0; i < snapshot.size(); i++) {
+            throwIfCanceled(cancellationSignal, i);
+            if (!isCandidate(snapshot, i, favoritesOnly, whatsAppNumbersIndex))
+                continue;
+            if (!TextUtils.isEmpty(filter) && !snapshot.nameKeys[i].contains(filter))
+                continue;
+            snapshot.addRow(cursor, i);
+        }
+        if (cursor.getCount() == 0 && filter != null && filter.length() >= FUZZY_MIN_FILTER_LENGTH)
+            return queryByNameFuzzy(snapshot, filter, favoritesOnly, whatsAppNumbersIndex, cancellationSignal);
+        return cursor;
+    }
+
+    /**
+     * used when no name contains the filter, mostly for names which were dictated or typed in the other alphabet.
+     *
+     * @return the closest names by {@link ContactNameMatcher}, closest first
+     */
+    @NonNull
+    private static Cursor queryByNameFuzzy(Snapshot snapshot, String filter, boolean favoritesOnly, @Nullable WhatsAppNumbersIndex whatsAppNumbersIndex, @Nullable CancellationSignal cancellationSignal) {
+        final MatrixCursor cursor = new MatrixCursor(CURSOR_COLUMNS);
+        final String[] filterKeys = ContactNameMatcher.phoneticKeys(filter);
+        if (filterKeys.length == 0)
+            return cursor;
+        final ContactNameMatcher.TopK topK = new ContactNameMatcher.TopK(FUZZY_RESULTS_LIMIT);
+        for (int i = 0; i < snapshot.size(); i++) {
+            throwIfCanceled(cancellationSignal, i);
+            if (!isCandidate(snapshot, i, favoritesOnly, whatsAppNumbersIndex))
+                continue;
+            final int distance = ContactNameMatcher.distance(filterKeys, snapshot.phoneticKeys(i));
+            if (distance >= 0)
+                topK.offer(i, distance);
+        }
+        for (final int position : topK.positions())
+            snapshot.addRow(cursor, position);
+        return cursor;
+    }
+
+    private static boolean isCandidate(Snapshot snapshot, int position, boolean favoritesOnly, @Nullable WhatsAppNumbersIndex whatsAppNumbersIndex) {
+        return snapshot.isListable(position)
+                && (!favoritesOnly || snapshot.starred[position])
+                && (whatsAppNumbersIndex == null || !whatsAppNumbersIndex.getNumbers(snapshot.ids[position]).isEmpty());
+    }
+
+    /**
+     * @return the last published snapshot, without waiting for a sync - if the directory is out of date, a sync is started.
+     * only waits if nothing was loaded yet, as there is nothing to read before the first load.
+     */
+    @NonNull
+    private Snapshot snapshot() {
+        final Snapshot snapshot = this.snapshot;
+        if (snapshot == null)
+            return sync();
+        if (dirty)
+            prefetch();
+        return snapshot;
+    }
+
+    /**
+     * brings the directory up to date on the calling thread, the provider is only queried while holding {@link #syncLock},
+     * which readers never take once a snapshot was published.
+     */
+    @NonNull
+    private Snapshot sync() {
+        synchronized (syncLock) {
+            final Snapshot old = this.snapshot;
+            if (old != null && !dirty)
+                return old;
+            // cleared before the queries, so changes which happen during them will cause another sync
+            dirty = false;
+            final Snapshot synced;
+            try {
+                synced = old == null ? load() : merge(old);
+            } catch (SecurityException e) {
+                Log.e(TAG, S.str(e.getMessage()));
+                e.printStackTrace();
+                dirty = true;
+                return old == null ? Snapshot.UNAVAILABLE : old;
+            }
+            if (synced != old) {
+                this.snapshot = synced;
+                for (final OnChangeListener listener : listeners)
+                    listener.onContactsChanged();
+            }
+            return synced;
+        }
+    }
+
+    private Snapshot load() {
+        final long lastDeletion = queryLastDeletion();
+        // only to find the ids at the high water mark, no contact was loaded yet
+        final HighWaterMark deletedMark = new HighWaterMark(lastDeletion, Collections.emptySet());
+        queryDeletedSince(deletedMark);
+        final HighWaterMark updatedMark = new HighWaterMark(0, Collections.emptySet());
+        final Map<Long, Row> rows = queryContacts(null, null, updatedMark);
+        queryPhones(rows, null, null);
+        commit(updatedMark, deletedMark);
+        return new Snapshot(rows.values());
+    }
+
+    private Snapshot merge(Snapshot old) {
+        final HighWaterMark deletedMark = new HighWaterMark(deletedHighWaterMark, deletedAtHighWaterMark);
+        final Set<Long> deleted = queryDeletedSince(deletedMark);
+        final HighWaterMark updatedMark = new HighWaterMark(updatedHighWaterMark, updatedAtHighWaterMark);
+        final Map<Long, Row> updated = queryContacts(
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " >= ?",
+                new String[]{String.valueOf(updatedHighWaterMark)},
+                updatedMark);
+        if (deleted.isEmpty() && updated.isEmpty())
+            return old;
+
+        final List<Long> updatedIds = new ArrayList<>(updated.keySet());
+        for (int i = 0; i < updatedIds.size(); i += D.SQLITE_MAX_VARIABLES) {
+            final List<Long> chunk = updatedIds.subList(i, Math.min(i + D.SQLITE_MAX_VARIABLES, updatedIds.size()));
+            final String[] args = new String[chunk.size()];
+            for (int j = 0; j < args.length; j++)
+                args[j] = String.valueOf(chunk.get(j));
+            queryPhones(updated,
+                    ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " IN (" + S.sqlPlaceholders(args.length) + ")",
+                    args);
+        }
+
+        final List<Row> rows = new ArrayList<>(old.size() + updated.size());
+        for (int i = 0; i < old.size(); i++) {
+            final long id = old.ids[i];
+            if (!deleted.contains(id) && !updated.containsKey(id))
+                rows.add(old.row(i));
+        }
+        rows.addAll(updated.values());
+        commit(updatedMark, deletedMark);
+        return new Snapshot(rows);
+    }
+
+    /**
+     * the marks only move once all of the queries of a sync succeeded, so a failed sync is retried from the same marks
+     */
+    private void commit(HighWaterMark updatedMark, HighWaterMark deletedMark) {
+        updatedHighWaterMark = updatedMark.timestamp;
+        updatedAtHighWaterMark = updatedMark.ids;
+        deletedHighWaterMark = deletedMark.timestamp;
+        deletedAtHighWaterMark = deletedMark.ids;
+    }
+
+    private Map<Long, Row> queryContacts(@Nullable String selection, @Nullable String[] selectionArgs, HighWaterMark mark) {
+        final Map<Long, Row> rows = new HashMap<>();
+        try (Cursor cursor = contentResolver.query(ContactsContract.Contacts.CONTENT_URI, CONTACTS_PROJECTION, selection, selectionArgs, null)) {
+            if (cursor == null)
+                return rows;
+            while (cursor.moveToNext()) {
+                if (!mark.offer(cursor.getLong(0), cursor.getLong(5)))
+                    continue;
+                final Row row = new Row(
+                        cursor.getLong(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getLong(6),
+                        cursor.getInt(4) == 1,
+                        new ArrayList<>(1));
+                rows.put(row.id, row);
+            }
+        }
+        return rows;
+    }
+
+    private void queryPhones(Map<Long, Row> rows, @Nullable String selection, @Nullable String[] selectionArgs) {
+        try (Cursor cursor = contentResolver.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, PHONES_PROJECTION, selection, selectionArgs, null)) {
+            if (cursor == null)
+                return;
+            while (cursor.moveToNext()) {
+                final Row row = rows.get(cursor.getLong(0));
+                final String digits = digitsOf(S.str(cursor.getString(1)));
+                if (row != null && !digits.isEmpty() && !row.numbers.contains(digits))
+                    row.numbers.add(digits);
+            }
+        }
+    }
+
+    private long queryLastDeletion() {
+        try (Cursor cursor = contentResolver.query(ContactsContract.DeletedContacts.CONTENT_URI, DELETED_PROJECTION, null, null,
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " DESC")) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getLong(1) : 0;
+        }
+    }
+
+    private Set<Long> queryDeletedSince(HighWaterMark mark) {
+        final Set<Long> deleted = new HashSet<>();
+        try (Cursor cursor = contentResolver.query(ContactsContract.DeletedContacts.CONTENT_URI, DELETED_PROJECTION,
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " >= ?", new String[]{String.valueOf(mark.timestamp)}, null)) {
+            if (cursor != null)
+                while (cursor.moveToNext()) {
+                    if (mark.offer(cursor.getLong(0), cursor.getLong(1)))
+                        deleted.add(cursor.getLong(0));
+                }
+        }
+        return deleted;
+    }
+
+    private static void throwIfCanceled(@Nullable CancellationSignal cancellationSignal, int position) {
+        if (cancellationSignal != null && position % CANCELLATION_CHECK_INTERVAL == 0)
+            cancellationSignal.throwIfCanceled();
+    }
+
+    @NonNull
+    static String digitsOf(@NonNull String number) {
+        final StringBuilder stringBuilder = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            final char c = number.charAt(i);
+            if (c >= '0' && c <= '9')
+                stringBuilder.append(c);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * @return a key which is the same for the numbers {@link #getByNumber(String)} matches, or null if the number has no digits
+     */
+    @Nullable
+    public static String numberKey(@Nullable String number) {
+        if (number == null)
+            return null;
+        final String digits = digitsOf(number);
+        return digits.isEmpty() ? null : minMatch(digits);
+    }
+
+    private static String minMatch(String digits) {
+        return digits.length() <= MIN_MATCH ? digits : digits.substring(digits.length() - MIN_MATCH);
+    }
+
+    /**
+     * Searches the contacts by dialed digits, using {@link DialerIndex}.
+     * while digits are only added, the new digits are checked against the previous results instead of searching all of the contacts;
+     * the results of shorter prefixes are kept, so erasing a digit does not search again.
+     */
+    public class DialerSearch {
+        private final List<int[]> results = new ArrayList<>();
+        private String digits = "";
+        private Snapshot searchedSnapshot;
+
+        private DialerSearch() {
+            // the index is only needed after the first digit, build it before that
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> snapshot().dialerIndex());
+        }
+
+        /**
+         * @param number the dialed number, anything but digits is ignored
+         * @return cursor of the contacts whose name matches the digits on the keypad or whose number contains them, sorted by name
+         */
+        @NonNull
+        public Cursor query(@NonNull String number) {
+            final Snapshot snapshot = snapshot();
+            final String newDigits = digitsOf(number);
+            if (snapshot != searchedSnapshot) {
+                searchedSnapshot = snapshot;
+                results.clear();
+            } else {
+                int common = 0;
+                while (common < Math.min(digits.length(), newDigits.length()) && digits.charAt(common) == newDigits.charAt(common))
+                    common++;
+                // results.get(i) are the results of the first i + 1 digits
+                while (results.size() > common)
+                    results.remove(results.size() - 1);
+            }
+            digits = newDigits;
+
+            final MatrixCursor cursor = new MatrixCursor(CURSOR_COLUMNS);
+            if (digits.isEmpty()) {
+                for (int i = 0; i < snapshot.size(); i++)
+                    if (snapshot.isListable(i) && snapshot.numbers[i].length > 0)
+                        snapshot.addRow(cursor, i);
+                return cursor;
+            }
+
+            final DialerIndex dialerIndex = snapshot.dialerIndex();
+            if (results.isEmpty()) {
+                final BitSet found = dialerIndex.search(digits.substring(0, 1));
+                final int[] positions = new int[found.cardinality()];
+                for (int i = found.nextSetBit(0), j = 0; i >= 0; i = found.nextSetBit(i + 1))
+                    positions[j++] = i;
+                results.add(positions);
+            }
+            while (results.size() < digits.length()) {
+                final String prefix = digits.substring(0, results.size() + 1);
+                final int[] previous = results.get(results.size() - 1);
+                final int[] positions = new int[previous.length];
+                int count = 0;
+                for (final int position : previous)
+                    if (dialerIndex.matches(position, prefix))
+                        positions[count++] = position;
+                results.add(Arrays.copyOf(positions, count));
+            }
+            for (final int position : results.get(results.size() - 1))
+                if (snapshot.isListable(position))
+                    snapshot.addRow(cursor, position);
+            return cursor;
+        }
+    }
+
+    private static class Row {
+        final long id;
+        final String lookupKey, name, photo;
+        final long photoId;
+        final boolean starred;
+        final List<String> numbers;
+
+        Row(long id, String lookupKey, String name, String photo, long photoId, boolean starred, List<String> numbers) {
+            this.id = id;
+            this.lookupKey = lookupKey;
+            this.name = name;
+            this.photo = photo;
+            this.photoId = photoId;
+            this.starred = starred;
+            this.numbers = numbers;
+        }
+    }
+
+    public interface OnChangeListener {
+        void onContactsChanged();
+    }
+
+    /**
+     * the newest timestamp of a sync, and the ids which had exactly that timestamp.
+     * starts from the mark of the previous sync, whose ids are skipped when queried again.
+     */
+    private static class HighWaterMark {
+        private final long since;
+        private final Set<Long> synced;
+        long timestamp;
+        Set<Long> ids;
+
+        HighWaterMark(long since, Set<Long> synced) {
+            this.since = since;
+            this.synced = synced;
+            this.timestamp = since;
+            this.ids = synced;
+        }
+
+        /**
+         * @return false if the row was already synced by the previous sync
+         */
+        boolean offer(long id, long timestamp) {
+            if (timestamp == since && synced.contains(id))
+                return false;
+            if (timestamp > this.timestamp) {
+                this.timestamp = timestamp;
+                ids = new HashSet<>();
+            }
+            if (timestamp == this.timestamp) {
+                if (ids == synced)
+                    ids = new HashSet<>(synced);
+                ids.add(id);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * immutable state of the directory. a new one is built for every change, so readers never need to lock it.
+     */
+    private static class Snapshot {
+        static final Snapshot UNAVAILABLE = new Snapshot(Collections.emptyList());
+        final long[] ids, photoIds;
+        final String[] lookupKeys, names, nameKeys, photos;
+        final boolean[] starred;
+        final String[][] numbers;
+        /**
+         * keys for {@link ContactNameMatcher}, computed on the first fuzzy query.
+         * computing a key twice on two threads gives the same key, so no locking is needed.
+         */
+        final String[][] phoneticKeys;
+        final Map<String, Integer> positionByLookupKey;
+        final Map<String, int[]> positionsByMinMatch;
+        private DialerIndex dialerIndex;
+
+        Snapshot(Collection<Row> unsortedRows) {
+            final Row[] rows = unsortedRows.toArray(new Row[0]);
+            final String[] sortKeys = new String[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                sortKeys[i] = rows[i].name == null ? null : rows[i].name.toUpperCase();
+            final Integer[] order = new Integer[rows.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (o1, o2) -> {
+                final String s1 = sortKeys[o1], s2 = sortKeys[o2];
+                if (s1 == null)
+                    return s2 == null ? 0 : 1;
+                return s2 == null ? -1 : s1.compareTo(s2);
+            });
+
+            ids = new long[rows.length];
+            lookupKeys = new String[rows.length];
+            names = new String[rows.length];
+            nameKeys = new String[rows.length];
+            photos = new String[rows.length];
+            photoIds = new long[rows.length];
+            starred = new boolean[rows.length];
+            numbers = new String[rows.length][];
+            phoneticKeys = new String[rows.length][];
+            positionByLookupKey = new HashMap<>(rows.length * 2);
+            positionsByMinMatch = new HashMap<>(rows.length * 2);
+            for (int i = 0; i < rows.length; i++) {
+                final Row row = rows[order[i]];
+                ids[i] = row.id;
+                lookupKeys[i] = row.lookupKey;
+                names[i] = row.name;
+                nameKeys[i] = row.name == null ? "" : row.name.toLowerCase();
+                photos[i] = row.photo;
+                photoIds[i] = row.photoId;
+                starred[i] = row.starred;
+                numbers[i] = row.numbers.toArray(new String[0]);
+                positionByLookupKey.put(row.lookupKey, i);
+                for (final String number : numbers[i]) {
+                    final String key = minMatch(number);
+                    final int[] positions = positionsByMinMatch.get(key);
+                    if (positions == null) {
+                        positionsByMinMatch.put(key, new int[]{i});
+                    } else if (positions[positions.length - 1] != i) {
+                        final int[] newPositions = Arrays.copyOf(positions, positions.length + 1);
+                        newPositions[positions.length] = i;
+                        positionsByMinMatch.put(key, newPositions);
+                    }
+                }
+            }
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /**
+         * the contacts lists show the first letter of the name, so nameless contacts are not listed
+         */
+        boolean isListable(int position) {
+            return !TextUtils.isEmpty(names[position]);
+        }
+
+        synchronized DialerIndex dialerIndex() {
+            if (dialerIndex == null)
+                dialerIndex = new DialerIndex(names, numbers);
+            return dialerIndex;
+        }
+
+        String[] phoneticKeys(int position) {
+            String[] keys = phoneticKeys[position];
+            if (keys == null) {
+                keys = ContactNameMatcher.phoneticKeys(names[position]);
+                phoneticKeys[position] = keys;
+            }
+            return keys;
+        }
+
+        void addRow(MatrixCursor cursor, int position) {
+            cursor.addRow(new Object[]{names[position], ids[position], photos[position], lookupKeys[position], starred[position] ? 1 : 0, photoIds[position]});
+        }
+
+        MiniContact miniContact(int position) {
+            return new MiniContact(lookupKeys[position], names[position], photos[position], photoIds[position], (int) ids[position], starred[position]);
+        }
+
+        Row row(int position) {
+            return new Row(ids[position], lookupKeys[position], names[position], photos[position], photoIds[position], starred[position],
+                    new ArrayList<>(Arrays.asList(numbers[position])));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Index for searching contacts by the digits dialed in {@link com.bald.uriah.baldphone.activities.DialerActivity}.
+ * names are indexed by their T9 keys in both keypad layouts, so "6674" finds "Moshe" and "472" finds "משה",
+ * and the numbers are indexed by all of their suffixes, so any part of a number is found by a binary search.
+ * both are kept in sorted arrays rather than in tries of objects.
+ */
+final class DialerIndex {
+    /**
+     * T9 keypad, indexed by letter, for 'a'-'z' and for 'א'-'ת' (after final letters were folded)
+     */
+    private static final String LATIN_KEYPAD = "22233344455566677778889999";
+    private static final String HEBREW_KEYPAD = "333222666555544449999888777";
+
+    /**
+     * the keys of every contact - the T9 keys of its name starting at every word, and its numbers
+     */
+    private final String[][] t9Keys, numbers;
+    private final String[] sortedT9Keys;
+    private final int[] sortedT9Positions;
+    private final String[] allNumbers;
+    private final int[] numberPositions;
+    /**
+     * number index in the high bits, offset in the low 16 bits
+     */
+    private final long[] sortedSuffixes;
+
+    DialerIndex(@NonNull String[] names, @NonNull String[][] numbers) {
+        this.numbers = numbers;
+        t9Keys = new String[names.length][];
+        final List<String> keys = new ArrayList<>(names.length * 2);
+        final List<Integer> keyPositions = new ArrayList<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            t9Keys[i] = t9Keys(names[i]);
+            for (final String key : t9Keys[i]) {
+                keys.add(key);
+                keyPositions.add(i);
+            }
+        }
+        final Integer[] keysOrder = new Integer[keys.size()];
+        for (int i = 0; i < keysOrder.length; i++)
+            keysOrder[i] = i;
+        Arrays.sort(keysOrder, (o1, o2) -> keys.get(o1).compareTo(keys.get(o2)));
+        sortedT9Keys = new String[keysOrder.length];
+        sortedT9Positions = new int[keysOrder.length];
+        for (int i = 0; i < keysOrder.length; i++) {
+            sortedT9Keys[i] = keys.get(keysOrder[i]);
+            sortedT9Positions[i] = keyPositions.get(keysOrder[i]);
+        }
+
+        int numbersCount = 0, suffixesCount = 0;
+        for (final String[] contactNumbers : numbers) {
+            numbersCount += contactNumbers.length;
+            for (final String number : contactNumbers)
+                suffixesCount += number.length();
+        }
+        allNumbers = new String[numbersCount];
+        numberPositions = new int[numbersCount];
+        final Long[] suffixes = new Long[suffixesCount];
+        for (int position = 0, n = 0, s = 0; position < numbers.length; position++) {
+            for (final String number : numbers[position]) {
+                allNumbers[n] = number;
+                numberPositions[n] = position;
+                for (int offset = 0; offset < number.length(); offset++)
+                    suffixes[s++] = ((long) n << 16) | offset;
+                n++;
+            }
+        }
+        Arrays.sort(suffixes, (o1, o2) -> compareSuffixes(o1, o2));
+        sortedSuffixes = new long[suffixes.length];
+        for (int i = 0; i < suffixes.length; i++)
+            sortedSuffixes[i] = suffixes[i];
+    }
+
+    /**
+     * @param digits dialed digits, not empty
+     * @return positions of the contacts whose name has a word starting with the digits, or whose number contains them
+     */
+    @NonNull
+    BitSet search(@NonNull String digits) {
+        final BitSet ret = new BitSet(t9Keys.length);
+        for (int i = lowerBound(sortedT9Keys, digits); i < sortedT9Keys.length && sortedT9Keys[i].startsWith(digits); i++)
+            ret.set(sortedT9Positions[i]);
+        int low = 0, high = sortedSuffixes.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compareSuffix(sortedSuffixes[mid], digits) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        for (int i = low; i < sortedSuffixes.length && suffixStartsWith(sortedSuffixes[i], digits); i++)
+            ret.set(numberPositions[(int) (sortedSuffixes[i] >>> 16)]);
+        return ret;
+    }
+
+    /**
+     * same as checking if {@link #search(String)} contains the position, without searching all of the contacts
+     */
+    boolean matches(int position, @NonNull String digits) {
+        for (final String key : t9Keys[position])
+            if (key.startsWith(digits))
+                return true;
+        for (final String number : numbers[position])
+            if (number.contains(digits))
+                return true;
+        return false;
+    }
+
+    /**
+     * @return the T9 keys of the name starting at each of its words, so a search can start at any word and continue to the next ones
+     */
+    private static String[] t9Keys(String name) {
+        if (name == null)
+            return new String[0];
+        final String[] words = S.normalize(name).split(" ");
+        final String[] keys = new String[words.length];
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (int i = words.length - 1; i >= 0; i--) {
+            final StringBuilder word = new StringBuilder(words[i].length());
+            for (int j = 0; j < words[i].length(); j++) {
+                final char digit = t9Digit(words[i].charAt(j));
+                if (digit != 0)
+                    word.append(digit);
+            }
+            stringBuilder.insert(0, word);
+            keys[i] = stringBuilder.toString();
+        }
+        return keys;
+    }
+
+    private static char t9Digit(char c) {
+        if (c >= 'a' && c <= 'z')
+            return LATIN_KEYPAD.charAt(c - 'a');
+        if (c >= 'א' && c <= 'ת')
+            return HEBREW_KEYPAD.charAt(c - 'א');
+        if (c >= '0' && c <= '9')
+            return c;
+        return 0;
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private int compareSuffixes(long suffix1, long suffix2) {
+        final String number1 = allNumbers[(int) (suffix1 >>> 16)], number2 = allNumbers[(int) (suffix2 >>> 16)];
+        int i1 = (int) (suffix1 & 0xFFFF), i2 = (int) (suffix2 & 0xFFFF);
+        for (; i1 < number1.length() && i2 < number2.length(); i1++, i2++)
+            if (number1.charAt(i1) != number2.charAt(i2))
+                return number1.charAt(i1) - number2.charAt(i2);
+        return (number1.length() - i1) - (number2.length() - i2);
+    }
+
+    private int compareSuffix(long suffix, String digits) {
+        final String number = allNumbers[(int) (suffix >>> 16)];
+        int i = (int) (suffix & 0xFFFF), j = 0;
+        for (; i < number.length() && j < digits.length(); i++, j++)
+            if (number.charAt(i) != digits.charAt(j))
+                return number.charAt(i) - digits.charAt(j);
+        return (number.length() - i) - (digits.length() - j);
+    }
+
+    private boolean suffixStartsWith(long suffix, String digits) {
+        final String number = allNumbers[(int) (suffix >>> 16)];
+        return number.startsWith(digits, (int) (suffix & 0xFFFF));
+    }
+}
@@ -34,26 +34,39 @@ public class MiniContact implements HomeScreenPinHelper.HomeScreenPinnable, Cons
     public final String lookupKey, photo;
     @Nullable
     public final String name;
+    public final long photoId;
     public final int id;
     public final boolean favorite;
 
-    public MiniContact(String lookupKey, @Nullable String name, String photo, int id, boolean favorite) {
+    public MiniContact(String lookupKey, @Nullable String name, String photo, long photoId, int id, boolean favorite) {
         this.lookupKey = lookupKey;
         this.name = name;
         this.photo = photo;
+        this.photoId = photoId;
         this.id = id;
         this.favorite = favorite;
     }
 
+    /**
+     * @return the photo of the contact, or null if it has no photo
+     */
+    @Nullable
+    public ContactPhoto getPhoto() {
+        return ContactPhoto.of(lookupKey, photoId);
+    }
+
     @Override
     public void applyToHomeScreenAppView(HomeScreenAppView homeScreenAppView) {
-        if (S.isValidContextForGlide(homeScreenAppView.iv_icon.getContext()))
+        if (S.isValidContextForGlide(homeScreenAppView.iv_icon.getContext())) {
+            final ContactPhoto contactPhoto = getPhoto();
             Glide
                     .with(homeScreenAppView.iv_icon)
-                    .load(photo)
+                    .load(contactPhoto == null ? null : contactPhoto.fullSize())
+                    .apply(ContactPhoto.FULL_SIZE_REQUEST_OPTIONS)
                     .apply(new RequestOptions()
                             .error(R.drawable.face_on_button))
                     .into(homeScreenAppView.iv_icon);
+        }
         homeScreenAppView.setText(name);
         homeScreenAppView.setIntent(lookupKey);
     }
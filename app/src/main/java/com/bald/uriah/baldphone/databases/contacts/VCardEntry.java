@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One contact of a vCard, holding only the fields BaldPhone shows - name, phones, mails and addresses.
+ * types are kept as the {@link android.provider.ContactsContract.CommonDataKinds} types, like in {@link Contact}.
+ */
+public class VCardEntry {
+    /**
+     * indexes of the components of an address, in the order of the vCard ADR property
+     */
+    public static final int ADDRESS_POBOX = 0, ADDRESS_EXTENDED = 1, ADDRESS_STREET = 2, ADDRESS_CITY = 3,
+            ADDRESS_REGION = 4, ADDRESS_POSTCODE = 5, ADDRESS_COUNTRY = 6, ADDRESS_COMPONENTS = 7;
+
+    @Nullable
+    public String formattedName, givenName, familyName, middleName;
+    public final List<Pair<Integer /*Type*/, String>> phones = new ArrayList<>(1);
+    public final List<Pair<Integer, String>> mails = new ArrayList<>(0);
+    public final List<Pair<Integer, String[]>> addresses = new ArrayList<>(0);
+
+    /**
+     * @return the name to show, the formatted name or else the structured name
+     */
+    @Nullable
+    public String getName() {
+        if (formattedName != null && !formattedName.isEmpty())
+            return formattedName;
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (final String part : new String[]{givenName, middleName, familyName})
+            if (part != null && !part.isEmpty())
+                stringBuilder.append(stringBuilder.length() == 0 ? "" : " ").append(part);
+        return stringBuilder.length() == 0 ? null : stringBuilder.toString();
+    }
+
+    static int phoneType(@NonNull Collection<String> vCardTypes) {
+        final boolean fax = vCardTypes.contains("FAX");
+        if (vCardTypes.contains("CELL"))
+            return Phone.TYPE_MOBILE;
+        if (vCardTypes.contains("PAGER"))
+            return Phone.TYPE_PAGER;
+        if (vCardTypes.contains("WORK"))
+            return fax ? Phone.TYPE_FAX_WORK : Phone.TYPE_WORK;
+        if (vCardTypes.contains("HOME"))
+            return fax ? Phone.TYPE_FAX_HOME : Phone.TYPE_HOME;
+        if (fax)
+            return Phone.TYPE_OTHER_FAX;
+        if (vCardTypes.contains("MAIN") || vCardTypes.contains("PREF"))
+            return Phone.TYPE_MAIN;
+        return Phone.TYPE_OTHER;
+    }
+
+    @NonNull
+    static String phoneVCardType(int type) {
+        switch (type) {
+            case Phone.TYPE_MOBILE:
+                return "CELL";
+            case Phone.TYPE_PAGER:
+                return "PAGER";
+            case Phone.TYPE_WORK:
+                return "WORK";
+            case Phone.TYPE_FAX_WORK:
+                return "WORK,FAX";
+            case Phone.TYPE_HOME:
+                return "HOME";
+            case Phone.TYPE_FAX_HOME:
+                return "HOME,FAX";
+            case Phone.TYPE_OTHER_FAX:
+                return "FAX";
+            case Phone.TYPE_MAIN:
+                return "MAIN";
+            default:
+                return "VOICE";
+        }
+    }
+
+    static int mailType(@NonNull Collection<String> vCardTypes) {
+        if (vCardTypes.contains("HOME"))
+            return Email.TYPE_HOME;
+        if (vCardTypes.contains("WORK"))
+            return Email.TYPE_WORK;
+        if (vCardTypes.contains("CELL"))
+            return Email.TYPE_MOBILE;
+        return Email.TYPE_OTHER;
+    }
+
+    @NonNull
+    static String mailVCardType(int type) {
+        switch (type) {
+            case Email.TYPE_HOME:
+                return "HOME";
+            case Email.TYPE_WORK:
+                return "WORK";
+            case Email.TYPE_MOBILE:
+                return "CELL";
+            default:
+                return "INTERNET";
+        }
+    }
+
+    static int addressType(@NonNull Collection<String> vCardTypes) {
+        if (vCardTypes.contains("HOME"))
+            return StructuredPostal.TYPE_HOME;
+        if (vCardTypes.contains("WORK"))
+            return StructuredPostal.TYPE_WORK;
+        return StructuredPostal.TYPE_OTHER;
+    }
+
+    @NonNull
+    static String addressVCardType(int type) {
+        switch (type) {
+            case StructuredPostal.TYPE_HOME:
+                return "HOME";
+            case StructuredPostal.TYPE_WORK:
+                return "WORK";
+            default:
+                return "POSTAL";
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "VCardEntry{%s, %d phones, %d mails, %d addresses}", getName(), phones.size(), mails.size(), addresses.size());
+    }
+}
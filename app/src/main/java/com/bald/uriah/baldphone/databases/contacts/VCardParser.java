@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streaming parser of vCard 3.0 and 4.0 files.
+ * reads one contact at a time with {@link #next()}, so files of any size are parsed without holding them in memory.
+ * properties BaldPhone does not use are skipped.
+ */
+public class VCardParser implements Closeable {
+    private final BufferedReader reader;
+    @Nullable
+    private String lookahead;
+
+    public VCardParser(@NonNull Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the next contact, or null at the end of the file
+     */
+    @Nullable
+    public VCardEntry next() throws IOException {
+        VCardEntry entry = null;
+        String line;
+        while ((line = readUnfoldedLine()) != null) {
+            final int colon = indexOfValueSeparator(line);
+            if (colon < 0)
+                continue;
+            final String[] nameAndParams = line.substring(0, colon).split(";");
+            String name = nameAndParams[0].toUpperCase(Locale.ROOT);
+            // "item1.TEL" - groups are not used
+            name = name.substring(name.indexOf('.') + 1);
+            final String value = line.substring(colon + 1);
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VCARD")) {
+                entry = new VCardEntry();
+            } else if (name.equals("END") && value.equalsIgnoreCase("VCARD")) {
+                if (entry != null)
+                    return entry;
+            } else if (entry != null) {
+                applyProperty(entry, name, types(nameAndParams), value);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static void applyProperty(VCardEntry entry, String name, Set<String> types, String value) {
+        switch (name) {
+            case "FN":
+                entry.formattedName = unescape(value);
+                break;
+            case "N": {
+                // family;given;middle;prefix;suffix
+                final List<String> parts = splitStructured(value);
+                entry.familyName = emptyToNull(parts.get(0));
+                entry.givenName = parts.size() > 1 ? emptyToNull(parts.get(1)) : null;
+                entry.middleName = parts.size() > 2 ? emptyToNull(parts.get(2)) : null;
+                break;
+            }
+            case "TEL": {
+                String number = unescape(value);
+                // vCard 4.0 - TEL;VALUE=uri:tel:+1-555-555-5555
+                if (number.regionMatches(true, 0, "tel:", 0, 4))
+                    number = number.substring(4);
+                if (!number.isEmpty())
+                    entry.phones.add(new Pair<>(VCardEntry.phoneType(types), number));
+                break;
+            }
+            case "EMAIL": {
+                final String mail = unescape(value);
+                if (!mail.isEmpty())
+                    entry.mails.add(new Pair<>(VCardEntry.mailType(types), mail));
+                break;
+            }
+            case "ADR": {
+                final List<String> parts = splitStructured(value);
+                final String[] components = new String[VCardEntry.ADDRESS_COMPONENTS];
+                boolean empty = true;
+                for (int i = 0; i < components.length && i < parts.size(); i++) {
+                    components[i] = emptyToNull(parts.get(i));
+                    empty &= components[i] == null;
+                }
+                if (!empty)
+                    entry.addresses.add(new Pair<>(VCardEntry.addressType(types), components));
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the upper cased values of the TYPE parameters, both "TYPE=CELL,VOICE" and the older bare "CELL"
+     */
+    private static Set<String> types(String[] nameAndParams) {
+        final Set<String> types = new HashSet<>();
+        for (int i = 1; i < nameAndParams.length; i++) {
+            String param = nameAndParams[i];
+            final int equals = param.indexOf('=');
+            if (equals >= 0) {
+                if (!param.substring(0, equals).trim().equalsIgnoreCase("TYPE"))
+                    continue;
+                param = param.substring(equals + 1);
+            }
+            for (final String type : param.replace("\"", "").split(","))
+                types.add(type.trim().toUpperCase(Locale.ROOT));
+        }
+        return types;
+    }
+
+    /**
+     * reads a line, joining the lines which continue it - the ones starting with a space or a tab
+     */
+    @Nullable
+    private String readUnfoldedLine() throws IOException {
+        String line = lookahead != null ? lookahead : reader.readLine();
+        lookahead = null;
+        if (line == null)
+            return null;
+        StringBuilder stringBuilder = null;
+        String next;
+        while ((next = reader.readLine()) != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+            if (stringBuilder == null)
+                stringBuilder = new StringBuilder(line);
+            stringBuilder.append(next, 1, next.length());
+        }
+        lookahead = next;
+        return stringBuilder == null ? line : stringBuilder.toString();
+    }
+
+    /**
+     * @return the index of the colon between the name and the value, skipping colons in quoted parameters
+     */
+    private static int indexOfValueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ':' && !quoted)
+                return i;
+        }
+        return -1;
+    }
+
+    private static List<String> splitStructured(String value) {
+        final List<String> parts = new ArrayList<>(VCardEntry.ADDRESS_COMPONENTS);
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\')
+                i++;
+            else if (c == ';') {
+                parts.add(unescape(value.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        parts.add(unescape(value.substring(start)));
+        return parts;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0)
+            return value.trim();
+        final StringBuilder stringBuilder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                if (c == 'n' || c == 'N')
+                    c = '\n';
+            }
+            stringBuilder.append(c);
+        }
+        return stringBuilder.toString().trim();
+    }
+
+    @Nullable
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+}
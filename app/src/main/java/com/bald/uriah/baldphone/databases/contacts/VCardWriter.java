@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming writer of vCard 3.0 files, every {@link #write(VCardEntry)} writes one contact straight to the writer.
+ * lines are folded by their length in UTF-8, so the writer should encode UTF-8.
+ */
+public class VCardWriter implements Closeable, Flushable {
+    private static final String CRLF = "\r\n";
+    /**
+     * lines longer than that are folded, vCard limits lines to 75 octets
+     */
+    private static final int MAX_LINE_OCTETS = 75;
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder();
+
+    public VCardWriter(@NonNull Writer writer) {
+        this.writer = writer;
+    }
+
+    public void write(@NonNull VCardEntry entry) throws IOException {
+        writeLine("BEGIN:VCARD");
+        writeLine("VERSION:3.0");
+        final String name = entry.getName();
+        writeLine("FN:" + escape(name == null ? "" : name));
+        writeLine("N:" + escape(entry.familyName) + ";" + escape(entry.givenName) + ";" + escape(entry.middleName) + ";;");
+        for (final Pair<Integer, String> phone : entry.phones)
+            writeLine("TEL;TYPE=" + VCardEntry.phoneVCardType(phone.first) + ":" + escape(phone.second));
+        for (final Pair<Integer, String> mail : entry.mails)
+            writeLine("EMAIL;TYPE=" + VCardEntry.mailVCardType(mail.first) + ":" + escape(mail.second));
+        for (final Pair<Integer, String[]> address : entry.addresses) {
+            line.setLength(0);
+            line.append("ADR;TYPE=").append(VCardEntry.addressVCardType(address.first)).append(':');
+            for (int i = 0; i < VCardEntry.ADDRESS_COMPONENTS; i++)
+                line.append(i == 0 ? "" : ";").append(escape(i < address.second.length ? address.second[i] : null));
+            writeLine(line.toString());
+        }
+        writeLine("END:VCARD");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * folds between code points, so neither a surrogate pair nor the UTF-8 bytes of a char are split
+     */
+    private void writeLine(String s) throws IOException {
+        int start = 0, octets = 0;
+        for (int i = 0; i < s.length(); ) {
+            final int codePoint = s.codePointAt(i);
+            final int length = utf8Length(codePoint);
+            // a folded line starts with a space, which counts towards its length
+            if (octets + length > MAX_LINE_OCTETS - (start == 0 ? 0 : 1)) {
+                if (start > 0)
+                    writer.write(' ');
+                writer.write(s, start, i - start);
+                writer.write(CRLF);
+                start = i;
+                octets = 0;
+            }
+            octets += length;
+            i += Character.charCount(codePoint);
+        }
+        if (start > 0)
+            writer.write(' ');
+        writer.write(s, start, s.length() - start);
+        writer.write(CRLF);
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80)
+            return 1;
+        if (codePoint < 0x800)
+            return 2;
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static String escape(@Nullable String value) {
+        if (value == null)
+            return "";
+        final StringBuilder stringBuilder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    stringBuilder.append('\\').append(c);
+                    break;
+                case '\n':
+                    stringBuilder.append("\\n");
+                    break;
+                case '\r':
+                    break;
+                default:
+                    stringBuilder.append(c);
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Bulk import and export of contacts as vCards.
+ * both stream - the import applies the contacts in chunks while parsing, and the export writes every contact while reading the cursor,
+ * so no side holds the whole address book in memory.
+ */
+public class VCards {
+    private static final String TAG = VCards.class.getSimpleName();
+    /**
+     * operations per applyBatch. the provider limits a batch to 500 operations, and a smaller batch keeps every transaction short.
+     */
+    private static final int BATCH_SIZE = 250;
+    private static final String[] EXPORT_PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data.MIMETYPE,
+            ContactsContract.Data.DATA1,
+            ContactsContract.Data.DATA2,
+            ContactsContract.Data.DATA3,
+            ContactsContract.Data.DATA4,
+            ContactsContract.Data.DATA5,
+            ContactsContract.Data.DATA6,
+            ContactsContract.Data.DATA7,
+            ContactsContract.Data.DATA8,
+            ContactsContract.Data.DATA9,
+            ContactsContract.Data.DATA10,
+    };
+    // data columns are shared by all mimetypes, see ContactsContract.CommonDataKinds
+    private static final int CONTACT_ID_INDEX = 0, MIMETYPE_INDEX = 1, DATA1_INDEX = 2, TYPE_INDEX = 3;
+    private static final int GIVEN_NAME_INDEX = 3, FAMILY_NAME_INDEX = 4, MIDDLE_NAME_INDEX = 6;
+    private static final int STREET_INDEX = 5, POBOX_INDEX = 6, NEIGHBORHOOD_INDEX = 7, CITY_INDEX = 8, REGION_INDEX = 9, POSTCODE_INDEX = 10, COUNTRY_INDEX = 11;
+    private static final String EXPORT_SELECTION =
+            ContactsContract.Data.MIMETYPE + " IN (?,?,?,?)";
+    private static final String[] EXPORT_SELECTION_ARGS = {
+            StructuredName.CONTENT_ITEM_TYPE,
+            Phone.CONTENT_ITEM_TYPE,
+            Email.CONTENT_ITEM_TYPE,
+            StructuredPostal.CONTENT_ITEM_TYPE,
+    };
+
+    private VCards() {
+    }
+
+    /**
+     * inserts every contact of the vCards as a new local contact.
+     * the first operation of every contact allows the provider to yield, so other apps are not blocked during a long import.
+     * a contact is never split between batches, so a contact with more data rows than fit in a batch is skipped.
+     *
+     * @return the number of contacts imported
+     */
+    public static int importVCards(@NonNull ContentResolver contentResolver, @NonNull Reader reader, @Nullable ProgressListener progressListener)
+            throws IOException, RemoteException, OperationApplicationException {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>(BATCH_SIZE);
+        int imported = 0, applied = 0;
+        try (VCardParser parser = new VCardParser(reader)) {
+            VCardEntry entry;
+            while ((entry = parser.next()) != null) {
+                // the back references of a contact are relative to its batch, so a contact is never split between batches
+                final int contactOperations = 2 + entry.phones.size() + entry.mails.size() + entry.addresses.size();
+                if (contactOperations > BATCH_SIZE) {
+                    Log.e(TAG, "skipping " + entry.getName() + ", " + contactOperations + " operations do not fit in a batch");
+                    continue;
+                }
+                if (operations.size() + contactOperations > BATCH_SIZE && !operations.isEmpty()) {
+                    contentResolver.applyBatch(ContactsContract.AUTHORITY, operations);
+                    operations.clear();
+                    applied = imported;
+                    if (progressListener != null)
+                        progressListener.onProgress(applied);
+                }
+                addInsertOperations(entry, operations);
+                imported++;
+            }
+        }
+        if (!operations.isEmpty())
+            contentResolver.applyBatch(ContactsContract.AUTHORITY, operations);
+        if (progressListener != null && applied != imported)
+            progressListener.onProgress(imported);
+        return imported;
+    }
+
+    /**
+     * writes all of the contacts as vCards, reading them with a single cursor ordered by contact.
+     *
+     * @return the number of contacts exported
+     */
+    public static int exportVCards(@NonNull ContentResolver contentResolver, @NonNull Writer writer) throws IOException {
+        final VCardWriter vCardWriter = new VCardWriter(writer);
+        int exported = 0;
+        try (Cursor cursor = contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                EXPORT_PROJECTION,
+                EXPORT_SELECTION,
+                EXPORT_SELECTION_ARGS,
+                ContactsContract.Data.CONTACT_ID)) {
+            if (cursor == null)
+                return 0;
+            VCardEntry entry = null;
+            long contactId = -1;
+            while (cursor.moveToNext()) {
+                if (entry == null || cursor.getLong(CONTACT_ID_INDEX) != contactId) {
+                    if (entry != null) {
+                        vCardWriter.write(entry);
+                        exported++;
+                    }
+                    entry = new VCardEntry();
+                    contactId = cursor.getLong(CONTACT_ID_INDEX);
+                }
+                readDataRow(cursor, entry);
+            }
+            if (entry != null) {
+                vCardWriter.write(entry);
+                exported++;
+            }
+        }
+        vCardWriter.flush();
+        return exported;
+    }
+
+    private static void readDataRow(Cursor cursor, VCardEntry entry) {
+        final String data1 = cursor.getString(DATA1_INDEX);
+        switch (cursor.getString(MIMETYPE_INDEX)) {
+            case StructuredName.CONTENT_ITEM_TYPE:
+                entry.formattedName = data1;
+                entry.givenName = cursor.getString(GIVEN_NAME_INDEX);
+                entry.familyName = cursor.getString(FAMILY_NAME_INDEX);
+                entry.middleName = cursor.getString(MIDDLE_NAME_INDEX);
+                break;
+            case Phone.CONTENT_ITEM_TYPE:
+                if (data1 != null)
+                    entry.phones.add(new Pair<>(cursor.getInt(TYPE_INDEX), data1));
+                break;
+            case Email.CONTENT_ITEM_TYPE:
+                if (data1 != null)
+                    entry.mails.add(new Pair<>(cursor.getInt(TYPE_INDEX), data1));
+                break;
+            case StructuredPostal.CONTENT_ITEM_TYPE: {
+                final String[] components = new String[VCardEntry.ADDRESS_COMPONENTS];
+                components[VCardEntry.ADDRESS_POBOX] = cursor.getString(POBOX_INDEX);
+                components[VCardEntry.ADDRESS_EXTENDED] = cursor.getString(NEIGHBORHOOD_INDEX);
+                components[VCardEntry.ADDRESS_STREET] = cursor.getString(STREET_INDEX);
+                components[VCardEntry.ADDRESS_CITY] = cursor.getString(CITY_INDEX);
+                components[VCardEntry.ADDRESS_REGION] = cursor.getString(REGION_INDEX);
+                components[VCardEntry.ADDRESS_POSTCODE] = cursor.getString(POSTCODE_INDEX);
+                components[VCardEntry.ADDRESS_COUNTRY] = cursor.getString(COUNTRY_INDEX);
+                // addresses entered in BaldPhone only have the formatted address
+                if (components[VCardEntry.ADDRESS_STREET] == null && components[VCardEntry.ADDRESS_CITY] == null)
+                    components[VCardEntry.ADDRESS_STREET] = data1;
+                entry.addresses.add(new Pair<>(cursor.getInt(TYPE_INDEX), components));
+                break;
+            }
+        }
+    }
+
+    /**
+     * appends the operations inserting the entry - the raw contact, and its data rows referring back to it.
+     */
+    private static void addInsertOperations(VCardEntry entry, ArrayList<ContentProviderOperation> operations) {
+        final int rawContactIndex = operations.size();
+        operations.add(
+                ContentProviderOperation.newInsert(ContactsContract.RawContacts.CONTENT_URI)
+                        .withValue(ContactsContract.RawContacts.ACCOUNT_NAME, null)
+                        .withValue(ContactsContract.RawContacts.ACCOUNT_TYPE, null)
+                        .withYieldAllowed(true)
+                        .build());
+        operations.add(
+                newDataInsert(StructuredName.CONTENT_ITEM_TYPE, rawContactIndex)
+                        .withValue(StructuredName.DISPLAY_NAME, entry.formattedName)
+                        .withValue(StructuredName.GIVEN_NAME, entry.givenName)
+                        .withValue(StructuredName.FAMILY_NAME, entry.familyName)
+                        .withValue(StructuredName.MIDDLE_NAME, entry.middleName)
+                        .build());
+        for (final Pair<Integer, String> phone : entry.phones)
+            operations.add(
+                    newDataInsert(Phone.CONTENT_ITEM_TYPE, rawContactIndex)
+                            .withValue(Phone.NUMBER, phone.second)
+                            .withValue(Phone.TYPE, phone.first)
+                            .build());
+        for (final Pair<Integer, String> mail : entry.mails)
+            operations.add(
+                    newDataInsert(Email.CONTENT_ITEM_TYPE, rawContactIndex)
+                            .withValue(Email.ADDRESS, mail.second)
+                            .withValue(Email.TYPE, mail.first)
+                            .build());
+        for (final Pair<Integer, String[]> address : entry.addresses) {
+            final String[] components = address.second;
+            operations.add(
+                    newDataInsert(StructuredPostal.CONTENT_ITEM_TYPE, rawContactIndex)
+                            .withValue(StructuredPostal.TYPE, address.first)
+                            .withValue(StructuredPostal.POBOX, components[VCardEntry.ADDRESS_POBOX])
+                            .withValue(StructuredPostal.NEIGHBORHOOD, components[VCardEntry.ADDRESS_EXTENDED])
+                            .withValue(StructuredPostal.STREET, components[VCardEntry.ADDRESS_STREET])
+                            .withValue(StructuredPostal.CITY, components[VCardEntry.ADDRESS_CITY])
+                            .withValue(StructuredPostal.REGION, components[VCardEntry.ADDRESS_REGION])
+                            .withValue(StructuredPostal.POSTCODE, components[VCardEntry.ADDRESS_POSTCODE])
+                            .withValue(StructuredPostal.COUNTRY, components[VCardEntry.ADDRESS_COUNTRY])
+                            .build());
+        }
+    }
+
+    private static ContentProviderOperation.Builder newDataInsert(String mimetype, int rawContactIndex) {
+        return ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContactIndex)
+                .withValue(ContactsContract.Data.MIMETYPE, mimetype);
+    }
+
+    public interface ProgressListener {
+        /**
+         * @param imported the number of contacts which were applied to the provider so far
+         */
+        void onProgress(int imported);
+    }
+}
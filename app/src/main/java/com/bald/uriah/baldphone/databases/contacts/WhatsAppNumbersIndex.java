@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.provider.ContactsContract;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bald.uriah.baldphone.utils.Constants;
+import com.bald.uriah.baldphone.utils.D;
+import com.bald.uriah.baldphone.utils.S;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the whatsapp numbers of all of the contacts, keyed by contact id.
+ * it is built with a single query over the data rows of the whatsapp raw contacts, which are joined to their contact by CONTACT_ID,
+ * and rebuilt lazily after a ContentObserver reports that the contacts changed.
+ */
+public class WhatsAppNumbersIndex {
+    private static final String TAG = WhatsAppNumbersIndex.class.getSimpleName();
+    private static final Object LOCK = new Object();
+    private static WhatsAppNumbersIndex whatsAppNumbersIndex = null;
+    private static final String[] PROJECTION = {
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data.LOOKUP_KEY,
+            ContactsContract.Data.DATA3,
+    };
+    private static final String SELECTION =
+            ContactsContract.Data.MIMETYPE + " = ? AND " + ContactsContract.RawContacts.ACCOUNT_TYPE + " = ?";
+
+    private final ContentResolver contentResolver;
+    private Map<Long, List<String>> numbersByContactId = Collections.emptyMap();
+    private Map<String, Long> contactIdByLookupKey = Collections.emptyMap();
+    private volatile boolean stale = true;
+    /**
+     * false if the contacts could not be observed, then the index is rebuilt on every read
+     */
+    private boolean observing;
+
+    private WhatsAppNumbersIndex(Context context) {
+        contentResolver = context.getContentResolver();
+        try {
+            contentResolver.registerContentObserver(ContactsContract.AUTHORITY_URI, true, new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    stale = true;
+                }
+            });
+            observing = true;
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+
+    public static WhatsAppNumbersIndex getInstance(@NonNull Context context) {
+        synchronized (LOCK) {
+            if (whatsAppNumbersIndex == null)
+                whatsAppNumbersIndex = new WhatsAppNumbersIndex(context.getApplicationContext());
+            return whatsAppNumbersIndex;
+        }
+    }
+
+    /**
+     * whatsapp stores the number in DATA3, sometimes with a "Message" prefix
+     */
+    @Nullable
+    public static String cleanNumber(@Nullable String number) {
+        if (TextUtils.isEmpty(number))
+            return null;
+        return number.startsWith("Message") ? number.replace("Message", "") : number;
+    }
+
+    @NonNull
+    public synchronized List<String> getNumbers(long contactId) {
+        ensureFresh();
+        final List<String> numbers = numbersByContactId.get(contactId);
+        return numbers == null ? Collections.<String>emptyList() : numbers;
+    }
+
+    @NonNull
+    public synchronized List<String> getNumbers(@NonNull String lookupKey) {
+        ensureFresh();
+        final Long contactId = contactIdByLookupKey.get(lookupKey);
+        return contactId == null ? Collections.<String>emptyList() : getNumbers(contactId);
+    }
+
+    private void ensureFresh() {
+        if (!stale && observing)
+            return;
+        // cleared before the query, so changes which happen during it will cause another rebuild
+        stale = false;
+        final Map<Long, List<String>> newNumbersByContactId = new HashMap<>();
+        final Map<String, Long> newContactIdByLookupKey = new HashMap<>();
+        try (Cursor cursor = contentResolver.query(
+                ContactsContract.Data.CONTENT_URI,
+                PROJECTION,
+                SELECTION,
+                new String[]{Constants.ContactConstants.WHATSAPP_PROFILE_MIMETYPE, D.WHATSAPP_PACKAGE_NAME},
+                null)) {
+            if (cursor != null)
+                while (cursor.moveToNext()) {
+                    final String number = cleanNumber(cursor.getString(2));
+                    if (number == null)
+                        continue;
+                    final long contactId = cursor.getLong(0);
+                    List<String> numbers = newNumbersByContactId.get(contactId);
+                    if (numbers == null) {
+                        numbers = new ArrayList<>(1);
+                        newNumbersByContactId.put(contactId, numbers);
+                    }
+                    numbers.add(number);
+                    newContactIdByLookupKey.put(cursor.getString(1), contactId);
+                }
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+            stale = true;
+        }
+        numbersByContactId = newNumbersByContactId;
+        contactIdByLookupKey = newContactIdByLookupKey;
+    }
+}
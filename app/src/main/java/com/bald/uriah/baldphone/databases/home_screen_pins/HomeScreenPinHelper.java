@@ -16,65 +16,64 @@
 
 package com.bald.uriah.baldphone.databases.home_screen_pins;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.database.Cursor;
+import android.database.ContentObserver;
 import android.provider.ContactsContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
 
 import com.bald.uriah.baldphone.databases.apps.AppsDatabase;
+import com.bald.uriah.baldphone.databases.contacts.ContactsDirectory;
 import com.bald.uriah.baldphone.databases.contacts.MiniContact;
+import com.bald.uriah.baldphone.utils.S;
 import com.bald.uriah.baldphone.views.HomeScreenAppView;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class HomeScreenPinHelper {
+    private static final String TAG = HomeScreenPinHelper.class.getSimpleName();
     public static final String SHARED_PREFS_KEY = PinnedContactPreferences.KEY;
     public static final String SET_KEY = PinnedContactPreferences.SET_KEY;
+    private static List<HomeScreenPinnable> cachedPinnables;
+    private static boolean observersRegistered;
 
     /**
-     * @param context
-     * @return sorted list of lookup keys
+     * Resolves all of the pinned contacts from the {@link ContactsDirectory},
+     * and removes the keys of contacts which the directory confirmed as deleted in a single edit.
+     *
+     * @return immutable list of the pinned contacts, sorted by name; null if there are no pinned contacts
      */
     private static List<MiniContact> getAllPinnedContacts(Context context) {
-        final Set<String> lookupKeys =
-                context.getSharedPreferences(SHARED_PREFS_KEY, Context.MODE_PRIVATE)
-                        .getStringSet(SET_KEY, null);
+        final SharedPreferences sharedPreferences = context.getSharedPreferences(SHARED_PREFS_KEY, Context.MODE_PRIVATE);
+        final Set<String> lookupKeys = sharedPreferences.getStringSet(SET_KEY, null);
         if (lookupKeys == null)
             return null;
-        final List<MiniContact> ret = new ArrayList<>(lookupKeys.size());
-        final ContentResolver contentResolver = context.getContentResolver();
-        for (String lookupKey :
-                lookupKeys) {
-            try (Cursor cursor = contentResolver.query(
-                    ContactsContract.Contacts.CONTENT_URI,
-                    MiniContact.PROJECTION,
-                    ContactsContract.Data.LOOKUP_KEY + " = ?",
-                    new String[]{
-                            lookupKey
-                    }, null)) {
-
-                if (cursor.moveToFirst()) {
-                    ret.add(new MiniContact(
-                            lookupKey,
-                            cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME)),
-                            cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI)),
-                            cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts._ID)),
-                            cursor.getInt(cursor.getColumnIndex(ContactsContract.Contacts.STARRED)) == 1
-                    ));
-                } else {
-                    removeContact(context, lookupKey);
-                }
-            } catch (Exception e) {
-                throw new AssertionError(e);
-            }
+        final Map<String, MiniContact> pinnedContacts = ContactsDirectory.getInstance(context).getByLookupKeys(lookupKeys);
+        if (pinnedContacts == null)
+            return null;
+        if (pinnedContacts.size() < lookupKeys.size()) {
+            // only the keys the directory confirmed as deleted, keys pinned meanwhile are kept
+            final Set<String> remaining = new HashSet<>(sharedPreferences.getStringSet(SET_KEY, lookupKeys));
+            for (final String lookupKey : lookupKeys)
+                if (!pinnedContacts.containsKey(lookupKey))
+                    remaining.remove(lookupKey);
+            sharedPreferences.edit().putStringSet(SET_KEY, remaining).apply();
         }
-        Collections.sort(ret, (o1, o2) -> o1.name.compareTo(o2.name));
-        return ret;
+        final List<MiniContact> ret = new ArrayList<>(pinnedContacts.values());
+        Collections.sort(ret, (o1, o2) -> {
+            if (o1.name == null)
+                return o2.name == null ? 0 : 1;
+            return o2.name == null ? -1 : o1.name.compareTo(o2.name);
+        });
+        return Collections.unmodifiableList(ret);
     }
 
     public static void pinContact(Context context, String lookupKey) {
@@ -87,6 +86,7 @@ public class HomeScreenPinHelper {
             newSet = new HashSet<>(befSet);
         newSet.add(lookupKey);
         sharedPreferences.edit().putStringSet(SET_KEY, newSet).apply();
+        invalidate();
     }
 
     public static boolean isPinned(Context context, String lookupKey) {
@@ -104,9 +104,18 @@ public class HomeScreenPinHelper {
             newSet = new HashSet<>(befSet);
         newSet.remove(lookupKey);
         sharedPreferences.edit().putStringSet(SET_KEY, newSet).apply();
+        invalidate();
     }
 
-    public static List<HomeScreenPinnable> getAll(Context context) {
+    /**
+     * @return the pinned apps and contacts. the list is cached until it is invalidated -
+     * by a change in the App table, in the contacts provider or in the pinned contacts,
+     * so as long as nothing changed the same instance is returned.
+     */
+    public static synchronized List<HomeScreenPinnable> getAll(Context context) {
+        if (cachedPinnables != null)
+            return cachedPinnables;
+        registerInvalidationObservers(context.getApplicationContext());
         final List<HomeScreenPinnable> ret =
                 new ArrayList<>(
                         AppsDatabase.getInstance(context)
@@ -115,8 +124,35 @@ public class HomeScreenPinHelper {
         final List<MiniContact> contactList = getAllPinnedContacts(context);
         if (contactList != null)
             ret.addAll(contactList);
-        return ret;
+        cachedPinnables = Collections.unmodifiableList(ret);
+        return cachedPinnables;
+    }
+
+    public static synchronized void invalidate() {
+        cachedPinnables = null;
+    }
 
+    private static void registerInvalidationObservers(Context context) {
+        if (observersRegistered)
+            return;
+        observersRegistered = true;
+        AppsDatabase.getInstance(context).getInvalidationTracker().addObserver(new InvalidationTracker.Observer("App") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        });
+        try {
+            context.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate();
+                }
+            });
+        } catch (SecurityException e) {
+            Log.e(TAG, S.str(e.getMessage()));
+            e.printStackTrace();
+        }
     }
 
     public interface HomeScreenPinnable {
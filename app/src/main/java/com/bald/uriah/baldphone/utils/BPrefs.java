@@ -108,6 +108,10 @@ public final class BPrefs {
 
     public static final String UUID_KEY = "UUID_KEY";
 
+    public static final String APPS_FINGERPRINT_KEY = "APPS_FINGERPRINT_KEY";
+    public static final String APPS_PACKAGES_SEQUENCE_KEY = "APPS_PACKAGES_SEQUENCE_KEY";
+    public static final String APPS_LOCALE_KEY = "APPS_LOCALE_KEY";
+
     public static final String LAST_DOWNLOAD_MANAGER_REQUEST_ID = "LAST_DOWNLOAD_MANAGER_REQUEST_ID";
     public static final String LAST_DOWNLOAD_MANAGER_REQUEST_VERSION_NUMBER = "LAST_DOWNLOAD_MANAGER_REQUEST_VERSION_NUMBER";
 
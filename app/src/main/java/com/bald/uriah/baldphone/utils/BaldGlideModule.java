@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bald.uriah.baldphone.utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bald.uriah.baldphone.databases.apps.App;
+import com.bald.uriah.baldphone.databases.apps.AppIconModelLoader;
+import com.bald.uriah.baldphone.databases.contacts.ContactPhoto;
+import com.bald.uriah.baldphone.databases.contacts.ContactPhotoModelLoader;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Registers BaldPhone's own models in Glide.
+ */
+@GlideModule
+public class BaldGlideModule extends AppGlideModule {
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(App.class, ByteBuffer.class, new AppIconModelLoader.Factory(context));
+        registry.prepend(ContactPhoto.class, InputStream.class, new ContactPhotoModelLoader.Factory(context));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -71,37 +71,30 @@ public class Constants {
      * {@link com.bald.uriah.baldphone.databases.contacts.Contact}
      */
     public interface ContactConstants extends BaseContactsConstants {
-        int PHONE_TYPE_INDEX = 1, PHONE_NUMBER_INDEX = 2;
-        String[] PHONE_PROJECTION = {
-                ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
-                ContactsContract.CommonDataKinds.Phone.TYPE,
-                ContactsContract.CommonDataKinds.Phone.NUMBER,
-        };
-        String PHONE_SELECTION = ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?";
-
-        int EMAIL_DATA_INDEX = 1;
-        String[] EMAIL_PROJECTION = {
-                ContactsContract.CommonDataKinds.Email.CONTACT_ID,
-                ContactsContract.CommonDataKinds.Email.DATA,
-        };
-        String EMAIL_SELECTION = ContactsContract.CommonDataKinds.Email.CONTACT_ID + " = ?";
-
-        int POBOX_INDEX = 3, STREET_INDEX = 4, CITY_INDEX = 5, REGION_INDEX = 6, POSTCODE_INDEX = 7, COUNTRY_INDEX = 8;
+        String WHATSAPP_PROFILE_MIMETYPE = "vnd.android.cursor.item/vnd.com.whatsapp.profile";
 
-        String[] ADDRESS_PROJECTION = {
-                ContactsContract.Data.CONTACT_ID,
+        /**
+         * all of the data rows of a contact are read in one query and demultiplexed by their mimetype.
+         * the indexes below are of the columns in {@link #DATA_PROJECTION}
+         */
+        int DATA_MIMETYPE_INDEX = 0,
+                PHONE_NUMBER_INDEX = 1, PHONE_TYPE_INDEX = 2,
+                EMAIL_DATA_INDEX = 1,
+                ADDRESS_TYPE_INDEX = 2, STREET_INDEX = 3, POBOX_INDEX = 4, CITY_INDEX = 5, REGION_INDEX = 6, POSTCODE_INDEX = 7, COUNTRY_INDEX = 8,
+                WHATSAPP_NUMBER_INDEX = 9;
+        String[] DATA_PROJECTION = {
                 ContactsContract.Data.MIMETYPE,
-                ContactsContract.CommonDataKinds.StructuredPostal.TYPE,
-
-                ContactsContract.CommonDataKinds.StructuredPostal.POBOX,
+                ContactsContract.Data.DATA1, // Phone.NUMBER, Email.DATA
+                ContactsContract.Data.DATA2, // Phone.TYPE, StructuredPostal.TYPE
                 ContactsContract.CommonDataKinds.StructuredPostal.STREET,
+                ContactsContract.CommonDataKinds.StructuredPostal.POBOX,
                 ContactsContract.CommonDataKinds.StructuredPostal.CITY,
                 ContactsContract.CommonDataKinds.StructuredPostal.REGION,
                 ContactsContract.CommonDataKinds.StructuredPostal.POSTCODE,
                 ContactsContract.CommonDataKinds.StructuredPostal.COUNTRY,
-
+                ContactsContract.Data.DATA3, // whatsapp profile number
         };
-        String ADDRESS_SELECTION = ContactsContract.Data.CONTACT_ID + " = ? AND " + ContactsContract.Data.MIMETYPE + " = ?";
+        String DATA_SELECTION = ContactsContract.Data.CONTACT_ID + " = ? AND " + ContactsContract.Data.MIMETYPE + " IN (?,?,?,?)";
 
         String[] RAW_CONTACT_PROJECTION = new String[]{ContactsContract.RawContacts._ID};
         String RAW_CONTACT_SELECTION = ContactsContract.RawContacts.CONTACT_ID + " = ?";
@@ -40,6 +40,10 @@ public class D {
     public static final View.OnClickListener EMPTY_CLICK_LISTENER = v -> {
     };
     public static final int LOW_BATTERY_LEVEL = 20;
+    /**
+     * the default limit of bound parameters in a single sqlite statement
+     */
+    public static final int SQLITE_MAX_VARIABLES = 999;
 
     //nope.
     private D() {
@@ -16,19 +16,48 @@
 
 package com.bald.uriah.baldphone.utils;
 
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
-import android.util.SparseIntArray;
+import android.graphics.Paint;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.util.Random;
+import com.bumptech.glide.Glide;
 
+/**
+ * Makes the colored letter avatars of contacts without a photo.
+ * the color is derived from the hash of the lookup key, so a contact has the same color on every screen and after restarts,
+ * and the rendered avatars are shared by all of the adapters through a bounded cache.
+ */
 public class RandomColorMaker {
-    private SparseIntArray hashsToColors = new SparseIntArray();
-    private Random random = new Random();
-    private boolean bright;
+    /**
+     * size of the avatar frames in contact_row_item and calls_item
+     */
+    private static final int AVATAR_SIZE_DP = 80;
+    private static final int AVATARS_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final LruCache<Long, Bitmap> avatars = new LruCache<Long, Bitmap>(AVATARS_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Long key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+    @ColorInt
+    private static int avatarsTextColor;
+    private static float avatarsTextSize;
+
+    @ColorInt
+    private final int backgroundColor;
+    private final boolean bright;
 
     public RandomColorMaker(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
         this.bright = !isColorBright(backgroundColor);
     }
 
@@ -40,12 +69,52 @@ public class RandomColorMaker {
 
     @ColorInt
     public int generateColor(int hash) {
-        @ColorInt int color;
-        color = hashsToColors.get(hash, -1);
-        if (color == -1) {
-            color = Color.HSVToColor(new float[]{random.nextFloat() * 360, 0.65f, bright ? 0.3f * random.nextFloat() : 0.9f - 0.3f * random.nextFloat()});
-            hashsToColors.append(hash, color);
+        // spread the bits of the hash, so similar lookup keys do not get similar colors
+        int h = hash * 0x9E3779B1;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        final float hue = (h & 0xFFFF) * 360f / 0x10000;
+        final float value = ((h >>> 16) & 0xFF) / 255f;
+        return Color.HSVToColor(new float[]{hue, 0.65f, bright ? 0.3f * value : 0.9f - 0.3f * value});
+    }
+
+    /**
+     * shows the letter on a colored circle - the color of the contact if colorful, else the background color.
+     * cancels any photo load of the image view, since it is recycled.
+     *
+     * @param letterView the letter is drawn with its paint, and it is hidden
+     */
+    public void applyLetterAvatar(@NonNull ImageView imageView, @NonNull TextView letterView, @Nullable String letter, int hash, boolean colorful) {
+        Glide.with(imageView).clear(imageView);
+        imageView.setImageBitmap(getAvatar(letterView, letter == null ? "" : letter, colorful ? generateColor(hash) : backgroundColor));
+        letterView.setVisibility(View.INVISIBLE);
+    }
+
+    private static Bitmap getAvatar(TextView letterView, String letter, @ColorInt int color) {
+        final Paint textPaint = letterView.getPaint();
+        final int textColor = letterView.getCurrentTextColor();
+        if (textColor != avatarsTextColor || textPaint.getTextSize() != avatarsTextSize) {
+            // the theme was changed
+            avatars.evictAll();
+            avatarsTextColor = textColor;
+            avatarsTextSize = textPaint.getTextSize();
+        }
+        final int codePoint = letter.isEmpty() ? 0 : letter.codePointAt(0);
+        final long key = ((long) codePoint << 32) | (color & 0xFFFFFFFFL);
+        Bitmap avatar = avatars.get(key);
+        if (avatar == null) {
+            final int size = Math.round(AVATAR_SIZE_DP * letterView.getResources().getDisplayMetrics().density);
+            // no transparency is needed, the image view crops it to a circle
+            avatar = Bitmap.createBitmap(size, size, Bitmap.Config.RGB_565);
+            final Canvas canvas = new Canvas(avatar);
+            canvas.drawColor(color);
+            final Paint paint = new Paint(textPaint);
+            paint.setColor(textColor);
+            paint.setTextAlign(Paint.Align.CENTER);
+            canvas.drawText(letter, size / 2f, size / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+            avatars.put(key, avatar);
         }
-        return color;
+        return avatar;
     }
 }
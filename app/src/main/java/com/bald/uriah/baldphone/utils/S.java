@@ -66,12 +66,14 @@ import org.joda.time.DateTime;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.text.Normalizer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * S - Static. Static methods which are used everywhere in the platform.
@@ -81,6 +83,8 @@ public class S {
     public static final String BALD_IMPORTANT_MESSAGE = "Bald Important Message";
     private static final float DIM_AMOUNT = 0.5f;
     private static final String EMPTY = "";
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
 
     public static void logImportant(@Nullable CharSequence charSequence) {
         Log.e(BALD_IMPORTANT_MESSAGE, String.valueOf(charSequence));
@@ -238,6 +242,52 @@ public class S {
         return o == null ? EMPTY : o.toString();
     }
 
+    /**
+     * normalizes a name for searching - lower cased, diacritics and niqqud removed, whitespaces collapsed
+     * and hebrew final letters folded. used by the apps and the contacts searches, so both match names the same way.
+     */
+    @NonNull
+    public static String normalize(@NonNull CharSequence charSequence) {
+        String s = Normalizer.normalize(charSequence, Normalizer.Form.NFD);
+        s = COMBINING_MARKS.matcher(s).replaceAll("");
+        s = WHITESPACES.matcher(s).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+        final char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = foldHebrewFinalLetter(chars[i]);
+        return new String(chars);
+    }
+
+    private static char foldHebrewFinalLetter(char c) {
+        switch (c) {
+            case 'ך':
+                return 'כ';
+            case 'ם':
+                return 'מ';
+            case 'ן':
+                return 'נ';
+            case 'ף':
+                return 'פ';
+            case 'ץ':
+                return 'צ';
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * @return "?,?,...,?" with amount question marks, for "IN (...)" selections
+     */
+    @NonNull
+    public static String sqlPlaceholders(int amount) {
+        final StringBuilder stringBuilder = new StringBuilder(amount * 2);
+        for (int i = 0; i < amount; i++) {
+            if (i > 0)
+                stringBuilder.append(',');
+            stringBuilder.append('?');
+        }
+        return stringBuilder.toString();
+    }
+
     //iterates via old fashioned for and not via foreach, because on most android devices its faster.
     public static boolean intArrayContains(@NonNull final int[] array, final int value) {
         for (int i = 0; i < array.length; i++) {
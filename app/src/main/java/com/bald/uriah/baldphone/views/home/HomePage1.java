@@ -54,7 +54,7 @@ import com.bald.uriah.baldphone.activities.pills.PillsActivity;
 import com.bald.uriah.baldphone.databases.apps.App;
 import com.bald.uriah.baldphone.databases.apps.AppsDatabase;
 import com.bald.uriah.baldphone.databases.apps.AppsDatabaseHelper;
-import com.bald.uriah.baldphone.databases.calls.CallLogsHelper;
+import com.bald.uriah.baldphone.databases.calls.MissedCallsCounter;
 import com.bald.uriah.baldphone.services.NotificationListenerService;
 import com.bald.uriah.baldphone.utils.BDB;
 import com.bald.uriah.baldphone.utils.BDialog;
@@ -93,7 +93,7 @@ public class HomePage1 extends HomeView {
             if (!viewsToApps.containsValue(bt_whatsapp))
                 bt_whatsapp.setBadgeVisibility(packagesSet.contains(D.WHATSAPP_PACKAGE_NAME));
             if (!viewsToApps.containsValue(bt_recent))
-                bt_recent.setBadgeVisibility(!CallLogsHelper.isAllReadSafe(getContext().getContentResolver()));
+                bt_recent.setBadgeVisibility(MissedCallsCounter.getInstance(context).getCount() > 0);
             if (!viewsToApps.containsValue(bt_messages))
                 bt_messages.setBadgeVisibility(packagesSet.contains(Telephony.Sms.getDefaultSmsPackage(context)));
             for (final App app : viewsToApps.keySet()) {
@@ -102,6 +102,13 @@ public class HomePage1 extends HomeView {
 
         }
     };
+    /**
+     * updates {@link HomePage1#bt_recent} whenever the count of the missed calls which were not seen changes
+     */
+    private final MissedCallsCounter.Listener missedCallsListener = count -> {
+        if (!viewsToApps.containsValue(bt_recent))
+            bt_recent.setBadgeVisibility(count > 0);
+    };
     private View view;
     private FirstPageAppIcon bt_clock, bt_camera, bt_videos, bt_assistant, bt_messages, bt_photos, bt_contacts, bt_dialer, bt_whatsapp, bt_apps, bt_reminders, bt_recent;
     private boolean registered = false;
@@ -135,6 +142,7 @@ public class HomePage1 extends HomeView {
             LocalBroadcastManager.getInstance(activity)
                     .registerReceiver(notificationReceiver,
                             new IntentFilter(NotificationListenerService.HOME_SCREEN_ACTIVITY_BROADCAST));
+            MissedCallsCounter.getInstance(activity).addListener(missedCallsListener);
             registered = true;
             LocalBroadcastManager.getInstance(activity).sendBroadcast(
                     new Intent(ACTION_REGISTER_ACTIVITY)
@@ -148,6 +156,7 @@ public class HomePage1 extends HomeView {
         if (registered) {
             LocalBroadcastManager.getInstance(activity)
                     .unregisterReceiver(notificationReceiver);
+            MissedCallsCounter.getInstance(activity).removeListener(missedCallsListener);
             registered = false;
         }
     }
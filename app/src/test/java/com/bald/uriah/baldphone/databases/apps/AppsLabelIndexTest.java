@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AppsLabelIndexTest {
+
+    @Test
+    public void emptyQueryReturnsAllAppsInOrder() {
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps("Calculator", "Camera", "Clock"));
+        assertEquals(Arrays.asList("Calculator", "Camera", "Clock"), labels(appsLabelIndex.query("")));
+        assertEquals(Arrays.asList("Calculator", "Camera", "Clock"), labels(appsLabelIndex.query("  ")));
+    }
+
+    @Test
+    public void shortQueriesAreLookedUpByTheirGram() {
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps("Calculator", "Camera", "Clock", "Maps"));
+        assertEquals(Arrays.asList("Calculator", "Camera", "Maps"), labels(appsLabelIndex.query("a")));
+        assertEquals(Arrays.asList("Calculator", "Camera"), labels(appsLabelIndex.query("ca")));
+    }
+
+    @Test
+    public void longQueriesMatchWholeSubstrings() {
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps("Calculator", "Calendar", "Camera", "Map Apps"));
+        assertEquals(Arrays.asList("Calculator"), labels(appsLabelIndex.query("calcu")));
+        assertEquals(Arrays.asList("Calendar"), labels(appsLabelIndex.query("lendar")));
+        // every trigram of the query is in the label, but the query is not
+        assertTrue(appsLabelIndex.query("mapps").isEmpty());
+        assertTrue(appsLabelIndex.query("xyzw").isEmpty());
+    }
+
+    @Test
+    public void queriesAreNormalized() {
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps("Café", "Google  Maps", "שלום", "בְּרֵאשִׁית"));
+        assertEquals(Arrays.asList("Café"), labels(appsLabelIndex.query("CAFE")));
+        assertEquals(Arrays.asList("Google  Maps"), labels(appsLabelIndex.query("google maps")));
+        // final letters are folded, so a query typed in the middle of a word still matches
+        assertEquals(Arrays.asList("שלום"), labels(appsLabelIndex.query("שלומ")));
+        // niqqud is removed
+        assertEquals(Arrays.asList("בְּרֵאשִׁית"), labels(appsLabelIndex.query("בראשית")));
+    }
+
+    @Test
+    public void addedAppsAreQueriedInOrder() {
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps("Calculator", "Clock"));
+        appsLabelIndex.add(app("Camera"));
+        assertEquals(Arrays.asList("Calculator", "Camera", "Clock"), labels(appsLabelIndex.query("")));
+        assertEquals(Arrays.asList("Calculator", "Camera"), labels(appsLabelIndex.query("ca")));
+    }
+
+    @Test
+    public void removedAppsAreNotQueried() {
+        final List<App> apps = apps("Calculator", "Camera", "Clock");
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps);
+        appsLabelIndex.remove(apps.get(1));
+        assertEquals(Arrays.asList("Calculator", "Clock"), labels(appsLabelIndex.query("")));
+        assertEquals(Arrays.asList("Calculator"), labels(appsLabelIndex.query("ca")));
+        // removing most of the apps rebuilds the index
+        appsLabelIndex.remove(apps.get(0));
+        assertEquals(Arrays.asList("Clock"), labels(appsLabelIndex.query("")));
+        assertTrue(appsLabelIndex.query("ca").isEmpty());
+    }
+
+    @Test
+    public void replacedAppsKeepTheirPlace() {
+        final List<App> apps = apps("Calculator", "Camera", "Clock");
+        final AppsLabelIndex appsLabelIndex = new AppsLabelIndex(apps);
+        final App pinnedCamera = apps.get(1).copy();
+        pinnedCamera.setPinned(true);
+        appsLabelIndex.replace(pinnedCamera);
+        final List<App> result = appsLabelIndex.query("");
+        assertEquals(Arrays.asList("Calculator", "Camera", "Clock"), labels(result));
+        assertSame(pinnedCamera, result.get(1));
+
+        final App renamedClock = apps.get(2).copy();
+        renamedClock.setLabel("Alarm Clock");
+        appsLabelIndex.replace(renamedClock);
+        assertEquals(Arrays.asList("Alarm Clock", "Calculator", "Camera"), labels(appsLabelIndex.query("")));
+        assertEquals(Arrays.asList("Alarm Clock"), labels(appsLabelIndex.query("alarm")));
+    }
+
+    private static List<App> apps(String... labels) {
+        final List<App> apps = new ArrayList<>(labels.length);
+        for (String label : labels)
+            apps.add(app(label));
+        return apps;
+    }
+
+    private static App app(String label) {
+        final App app = new App();
+        app.setLabel(label);
+        app.setFlattenComponentName("com.example/." + label);
+        return app;
+    }
+
+    private static List<String> labels(List<App> apps) {
+        final List<String> labels = new ArrayList<>(apps.size());
+        for (App app : apps)
+            labels.add(app.getLabel());
+        return labels;
+    }
+}
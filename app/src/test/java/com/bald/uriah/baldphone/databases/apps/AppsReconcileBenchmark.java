@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.apps;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link AppsDatabaseHelper#reconcile} and measures it with up to 5,000 synthetic apps.
+ * the time per app is printed for every size, and should stay about the same as the number of apps grows.
+ */
+public class AppsReconcileBenchmark {
+    private static final int[] SIZES = {625, 1250, 2500, 5000};
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 21;
+
+    @Test
+    public void reconcileFindsAddedAndRemovedApps() {
+        final AppsDatabaseHelper.Reconciliation reconciliation = AppsDatabaseHelper.reconcile(
+                Arrays.asList("a/.A", "b/.B", "c/.C"),
+                Arrays.asList("b/.B", "c/.C", "d/.D", "d/.D"));
+        assertEquals(Collections.singletonList("d/.D"), reconciliation.addList);
+        assertEquals(Collections.singletonList("a/.A"), reconciliation.removeList);
+    }
+
+    @Test
+    public void reconcileOfTheSameAppsChangesNothing() {
+        final List<String> apps = componentNames(0, 100);
+        final AppsDatabaseHelper.Reconciliation reconciliation = AppsDatabaseHelper.reconcile(apps, new ArrayList<>(apps));
+        assertTrue(reconciliation.addList.isEmpty());
+        assertTrue(reconciliation.removeList.isEmpty());
+    }
+
+    @Test
+    public void benchmarkReconcile() {
+        for (final int size : SIZES) {
+            // a tenth of the apps were uninstalled, and as many new ones were installed
+            final List<String> dbApps = componentNames(0, size);
+            final List<String> installedApps = componentNames(size / 10, size + size / 10);
+            Collections.shuffle(installedApps);
+
+            AppsDatabaseHelper.Reconciliation reconciliation = null;
+            for (int i = 0; i < WARMUP_ITERATIONS; i++)
+                reconciliation = AppsDatabaseHelper.reconcile(dbApps, installedApps);
+            final long[] nanos = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                final long start = System.nanoTime();
+                reconciliation = AppsDatabaseHelper.reconcile(dbApps, installedApps);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+
+            assertEquals(size / 10, reconciliation.addList.size());
+            assertEquals(size / 10, reconciliation.removeList.size());
+            assertEquals(new HashSet<>(componentNames(size, size + size / 10)), new HashSet<>(reconciliation.addList));
+            final long median = nanos[ITERATIONS / 2];
+            System.out.println(String.format("reconcile %d apps: %dus, %dns per app", size, median / 1000, median / size));
+        }
+    }
+
+    private static List<String> componentNames(int from, int to) {
+        final List<String> componentNames = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++)
+            componentNames.add("com.example.app" + i + "/com.example.app" + i + ".MainActivity");
+        return componentNames;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ContactNameMatcherTest {
+
+    @Test
+    public void hebrewAndLatinNamesHaveTheSameKeys() {
+        assertKeys("משה כהן", "ms", "khn");
+        assertKeys("Moshe Cohen", "ms", "khn");
+        assertKeys("שמואל", "sml");
+        assertKeys("Shmuel", "sml");
+        assertKeys("צבי", "cb");
+        assertKeys("Tzvi", "cb");
+        assertKeys("יוסף", "sp");
+        assertKeys("Yosef", "sp");
+    }
+
+    @Test
+    public void lettersWhichSoundAlikeAreFolded() {
+        assertKeys("Avraham", "brhm");
+        assertKeys("Abraham", "brhm");
+        assertKeys("Hanna", "hn");
+        assertKeys("חנה", "hn");
+    }
+
+    @Test
+    public void wordsWithoutConsonantsAreDropped() {
+        assertKeys("");
+        assertKeys("   ");
+        assertKeys("Anna Eia", "n");
+        assertKeys("Éli", "l");
+    }
+
+    @Test
+    public void closeNamesMatch() {
+        assertEquals(0, distance("moshe cohen", "משה כהן"));
+        assertEquals(0, distance("shmuel", "שמואל"));
+        assertEquals(0, distance("abraham", "אברהם לוי"));
+        // a partly typed word matches the prefix of the name
+        assertEquals(0, distance("mos", "Moshe Cohen"));
+        // one typo in a long enough word
+        assertEquals(1, distance("abrahan", "Avraham Levi"));
+    }
+
+    @Test
+    public void farNamesDoNotMatch() {
+        assertEquals(-1, distance("david", "Moshe Cohen"));
+        // short keys must match exactly
+        assertEquals(-1, distance("ben", "Dan"));
+        // every word of the filter has to match
+        assertEquals(-1, distance("moshe david", "Moshe Cohen"));
+        assertEquals(-1, distance("", "Moshe Cohen"));
+        assertEquals(-1, distance("moshe", ""));
+    }
+
+    @Test
+    public void topKKeepsTheBestMatchesInOrder() {
+        final ContactNameMatcher.TopK topK = new ContactNameMatcher.TopK(3);
+        topK.offer(0, 2);
+        topK.offer(1, 0);
+        topK.offer(2, 1);
+        topK.offer(3, 0);
+        topK.offer(4, 2);
+        topK.offer(5, 1);
+        // ties are kept in position order
+        assertArrayEquals(new int[]{1, 3, 2}, topK.positions());
+    }
+
+    @Test
+    public void topKWithFewMatches() {
+        final ContactNameMatcher.TopK topK = new ContactNameMatcher.TopK(10);
+        assertEquals(0, topK.positions().length);
+        topK.offer(7, 1);
+        topK.offer(3, 1);
+        assertArrayEquals(new int[]{3, 7}, topK.positions());
+    }
+
+    private static void assertKeys(String name, String... keys) {
+        assertArrayEquals(name, keys, ContactNameMatcher.phoneticKeys(name));
+    }
+
+    private static int distance(String filter, String name) {
+        return ContactNameMatcher.distance(ContactNameMatcher.phoneticKeys(filter), ContactNameMatcher.phoneticKeys(name));
+    }
+}
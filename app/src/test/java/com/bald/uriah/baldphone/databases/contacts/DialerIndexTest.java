@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Uriah Shaul Mandel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bald.uriah.baldphone.databases.contacts;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class DialerIndexTest {
+    private static final String[] NAMES = {"Moshe Cohen", "משה", "David Levi", null, "Ronny"};
+    private static final String[][] NUMBERS = {
+            {"0541234567"},
+            {"0529876543", "039876543"},
+            {},
+            {"0541234567", "1234"},
+            {}
+    };
+
+    private final DialerIndex dialerIndex = new DialerIndex(NAMES, NUMBERS);
+
+    @Test
+    public void namesAreFoundByTheirT9Keys() {
+        assertEquals(bits(0), dialerIndex.search("6674"));
+        assertEquals(bits(1), dialerIndex.search("472"));
+        assertEquals(bits(2), dialerIndex.search("32843"));
+        // doubled letters are dialed twice
+        assertEquals(bits(4), dialerIndex.search("76669"));
+    }
+
+    @Test
+    public void searchesStartAtEveryWordAndContinueToTheNextOnes() {
+        assertEquals(bits(0), dialerIndex.search("2643"));
+        assertEquals(bits(2), dialerIndex.search("5384"));
+        assertEquals(bits(2), dialerIndex.search("3284353"));
+        assertEquals(bits(), dialerIndex.search("5384328"));
+    }
+
+    @Test
+    public void numbersAreFoundByAnyPartOfThem() {
+        assertEquals(bits(0, 3), dialerIndex.search("054"));
+        assertEquals(bits(0, 3), dialerIndex.search("4567"));
+        assertEquals(bits(0, 3), dialerIndex.search("0541234567"));
+        assertEquals(bits(1), dialerIndex.search("987654"));
+        assertEquals(bits(1), dialerIndex.search("039"));
+        assertEquals(bits(0, 3), dialerIndex.search("1234"));
+        assertEquals(bits(), dialerIndex.search("05412345678"));
+    }
+
+    @Test
+    public void namesAndNumbersAreSearchedTogether() {
+        // "3" starts "David" and is in the numbers of the other contacts
+        assertEquals(bits(0, 1, 2, 3), dialerIndex.search("3"));
+    }
+
+    @Test
+    public void matchesAgreesWithSearch() {
+        final String[] digits = {"0", "3", "4", "6", "472", "6674", "2643", "5384", "1234", "987", "76669", "99"};
+        for (final String d : digits) {
+            final BitSet found = dialerIndex.search(d);
+            for (int position = 0; position < NAMES.length; position++)
+                assertEquals(d + " at " + position, found.get(position), dialerIndex.matches(position, d));
+        }
+    }
+
+    @Test
+    public void emptyIndex() {
+        assertEquals(bits(), new DialerIndex(new String[0], new String[0][]).search("123"));
+    }
+
+    private static BitSet bits(int... positions) {
+        final BitSet bitSet = new BitSet();
+        for (int position : positions)
+            bitSet.set(position);
+        return bitSet;
+    }
+}